@@ -2,8 +2,14 @@ package jp.co.sample.emp_management;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+// キャッシュをトランザクションの外側で処理し、キャッシュヒット時にはDB接続を取得しないようにする
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+@EnableScheduling
 public class ExEmpManageAnswerApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,87 @@
+package jp.co.sample.emp_management.configuration;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * データベース接続の保持時間を計測する設定.
+ * 接続ごとの保持時間(jdbc.connections.hold)と、1リクエストで保持した時間の合計(jdbc.connections.hold.request)を記録します。
+ * データソースは包まず、HikariCPのMetricsTrackerFactoryとして計測するため、
+ * Spring Bootがデータソースを見て登録するhikaricp.*のメトリクスもそのまま使えます。
+ *
+ * @author takaram
+ *
+ */
+@Configuration
+public class ConnectionHoldTimeConfiguration {
+
+	/**
+	 * HikariCPのプールに{@link ConnectionHoldTimeMetricsTrackerFactory}を設定します.
+	 * 既にメトリクスの設定があるプールはそのままにします。
+	 *
+	 * @param meterRegistry メトリクスの登録先
+	 * @return BeanPostProcessor
+	 */
+	@Bean
+	public static BeanPostProcessor connectionHoldTimeMetricsPostProcessor(
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource) {
+					HikariDataSource dataSource = (HikariDataSource) bean;
+					if (dataSource.getMetricRegistry() == null && dataSource.getMetricsTrackerFactory() == null) {
+						dataSource.setMetricsTrackerFactory(
+								new ConnectionHoldTimeMetricsTrackerFactory(meterRegistry.getObject()));
+					}
+				}
+				return bean;
+			}
+		};
+	}
+
+	/**
+	 * リクエストごとに接続を保持した時間の合計を記録するフィルターを登録します.
+	 *
+	 * @param meterRegistry メトリクスの登録先
+	 * @return フィルターの登録情報
+	 */
+	@Bean
+	public FilterRegistrationBean<OncePerRequestFilter> connectionHoldTimeFilter(MeterRegistry meterRegistry) {
+		Timer requestHoldTimer = Timer.builder("jdbc.connections.hold.request")
+				.description("1リクエストでデータベース接続を保持した時間の合計").register(meterRegistry);
+		OncePerRequestFilter filter = new OncePerRequestFilter() {
+			@Override
+			protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+					FilterChain filterChain) throws ServletException, IOException {
+				ConnectionHoldTimeMetricsTrackerFactory.startRecording();
+				try {
+					filterChain.doFilter(request, response);
+				} finally {
+					requestHoldTimer.record(ConnectionHoldTimeMetricsTrackerFactory.stopRecording(), TimeUnit.NANOSECONDS);
+				}
+			}
+		};
+		FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+}
@@ -0,0 +1,97 @@
+package jp.co.sample.emp_management.configuration;
+
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * HikariCPのメトリクス(hikaricp.*)に加えて、接続を保持した時間を計測するMetricsTrackerFactory.
+ * HikariCPが接続の返却時に通知する保持時間をjdbc.connections.holdとして記録し、
+ * {@link #startRecording()}から{@link #stopRecording()}までの間に同じスレッドで保持した時間の合計を返します。
+ * データソースを包まずにプールの内側で計測するため、データソースはHikariDataSourceのままです。
+ *
+ * @author takaram
+ *
+ */
+public class ConnectionHoldTimeMetricsTrackerFactory implements MetricsTrackerFactory {
+	/** 記録中のスレッドで保持した時間の合計(ナノ秒). 記録中でなければnull */
+	private static final ThreadLocal<long[]> TOTAL_NANOS = new ThreadLocal<>();
+
+	private final MeterRegistry meterRegistry;
+	private final MicrometerMetricsTrackerFactory delegate;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public ConnectionHoldTimeMetricsTrackerFactory(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		this.delegate = new MicrometerMetricsTrackerFactory(meterRegistry);
+	}
+
+	/**
+	 * 現在のスレッドで接続を保持した時間の記録を始めます.
+	 */
+	public static void startRecording() {
+		TOTAL_NANOS.set(new long[1]);
+	}
+
+	/**
+	 * 現在のスレッドで接続を保持した時間の記録を終えます.
+	 *
+	 * @return {@link #startRecording()}以降に接続を保持した時間の合計(ナノ秒)
+	 */
+	public static long stopRecording() {
+		long[] total = TOTAL_NANOS.get();
+		TOTAL_NANOS.remove();
+		return total == null ? 0 : total[0];
+	}
+
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		IMetricsTracker tracker = delegate.create(poolName, poolStats);
+		Timer holdTimer = Timer.builder("jdbc.connections.hold")
+				.description("接続を取得してから返却するまでの時間")
+				.tag("pool", poolName)
+				.register(meterRegistry);
+		return new IMetricsTracker() {
+			@Override
+			public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+				tracker.recordConnectionCreatedMillis(connectionCreatedMillis);
+			}
+
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				tracker.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+			}
+
+			@Override
+			public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+				tracker.recordConnectionUsageMillis(elapsedBorrowedMillis);
+				holdTimer.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+				// 返却は取得したスレッドで行われるため、そのスレッドの合計に加える
+				long[] total = TOTAL_NANOS.get();
+				if (total != null) {
+					total[0] += TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis);
+				}
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				tracker.recordConnectionTimeout();
+			}
+
+			@Override
+			public void close() {
+				tracker.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,52 @@
+package jp.co.sample.emp_management.configuration;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * メトリクスの設定.
+ * リクエストごとの応答時間(http.server.requests)に、処理したコントローラーのクラス名をcontrollerタグとして付けます。
+ *
+ * @author takaram
+ *
+ */
+@Configuration
+public class MetricsConfiguration {
+
+	/**
+	 * 標準のタグにcontrollerタグを加えるTagsProviderを作成します.
+	 *
+	 * @return TagsProvider
+	 */
+	@Bean
+	public WebMvcTagsProvider webMvcTagsProvider() {
+		return new DefaultWebMvcTagsProvider() {
+			@Override
+			public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+					Throwable exception) {
+				return Tags.of(super.getTags(request, response, handler, exception)).and(controller(handler));
+			}
+
+			@Override
+			public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+				return Tags.of(super.getLongRequestTags(request, handler)).and(controller(handler));
+			}
+		};
+	}
+
+	private static Tag controller(Object handler) {
+		if (handler instanceof HandlerMethod) {
+			return Tag.of("controller", ((HandlerMethod) handler).getBeanType().getSimpleName());
+		}
+		return Tag.of("controller", "none");
+	}
+}
@@ -0,0 +1,121 @@
+package jp.co.sample.emp_management.configuration;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 読み取り専用のトランザクションをレプリカで実行する設定.
+ * employee.datasource.replica.urlを指定した場合だけ有効になり、指定しない場合はspring.datasourceだけを使います。
+ *
+ * プライマリとレプリカはそれぞれ別のHikariCPのプールを持ち、hikaricp.*のメトリクスはpoolタグ(primary/replica)で区別します。
+ * プライマリのプールにはspring.datasource.hikari.*、レプリカのプールにはemployee.datasource.replica.hikari.*を適用し、
+ * どちらも終了時に閉じます。プールには作成時に接続の保持時間を計測するMetricsTrackerFactoryを設定するため、
+ * 振り分けるデータソースを通しても保持時間は1回だけ計測されます。
+ *
+ * @author takaram
+ *
+ */
+@Configuration
+@ConditionalOnProperty("employee.datasource.replica.url")
+public class ReadReplicaConfiguration {
+	/**
+	 * プライマリのプールを作成します.
+	 *
+	 * @param properties spring.datasourceの設定
+	 * @param meterRegistry メトリクスの登録先
+	 * @return プライマリのプール
+	 */
+	@Bean(destroyMethod = "close")
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		primary.setPoolName(ReadReplicaRoutingDataSource.PRIMARY);
+		primary.setMetricsTrackerFactory(new ConnectionHoldTimeMetricsTrackerFactory(meterRegistry));
+		return primary;
+	}
+
+	/**
+	 * レプリカのプールを作成します.
+	 *
+	 * @param url レプリカのURL
+	 * @param username レプリカのユーザー名
+	 * @param password レプリカのパスワード
+	 * @param meterRegistry メトリクスの登録先
+	 * @return レプリカのプール
+	 */
+	@Bean(destroyMethod = "close")
+	@ConfigurationProperties("employee.datasource.replica.hikari")
+	public HikariDataSource replicaDataSource(@Value("${employee.datasource.replica.url}") String url,
+			@Value("${employee.datasource.replica.username:${spring.datasource.username:}}") String username,
+			@Value("${employee.datasource.replica.password:${spring.datasource.password:}}") String password,
+			MeterRegistry meterRegistry) {
+		HikariDataSource replica = new HikariDataSource();
+		replica.setPoolName(ReadReplicaRoutingDataSource.REPLICA);
+		replica.setJdbcUrl(url);
+		replica.setUsername(username);
+		replica.setPassword(password);
+		replica.setReadOnly(true);
+		replica.setMetricsTrackerFactory(new ConnectionHoldTimeMetricsTrackerFactory(meterRegistry));
+		return replica;
+	}
+
+	/**
+	 * レプリカの遅延を確認するクラスを作成します.
+	 *
+	 * @param replica レプリカのプール
+	 * @param maxLagMillis 許容する遅延(ミリ秒)
+	 * @param meterRegistry メトリクスの登録先
+	 * @return レプリカの遅延を確認するクラス
+	 */
+	@Bean
+	public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+			@Value("${employee.datasource.replica.max-lag-millis:1000}") long maxLagMillis,
+			MeterRegistry meterRegistry) {
+		return new ReplicaLagMonitor(replica, maxLagMillis, meterRegistry);
+	}
+
+	/**
+	 * プライマリとレプリカに振り分けるデータソースを作成します.
+	 *
+	 * @param primary プライマリのプール
+	 * @param replicaLagMonitor レプリカの遅延を確認するクラス
+	 * @return データソース
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+			ReplicaLagMonitor replicaLagMonitor) {
+		Map<Object, Object> targetDataSources = new HashMap<>();
+		targetDataSources.put(ReadReplicaRoutingDataSource.PRIMARY, primary);
+		targetDataSources.put(ReadReplicaRoutingDataSource.REPLICA, replicaLagMonitor.getReplica());
+		ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(replicaLagMonitor);
+		routingDataSource.setTargetDataSources(targetDataSources);
+		routingDataSource.setDefaultTargetDataSource(primary);
+		routingDataSource.afterPropertiesSet();
+
+		// 接続の取得を最初のSQLまで遅らせ、トランザクションが読み取り専用かどうか決まってから振り分ける
+		LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+		proxy.setTargetDataSource(routingDataSource);
+		proxy.setDefaultAutoCommit(true);
+		proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		proxy.afterPropertiesSet();
+		return proxy;
+	}
+}
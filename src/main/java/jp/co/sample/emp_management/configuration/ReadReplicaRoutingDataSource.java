@@ -0,0 +1,39 @@
+package jp.co.sample.emp_management.configuration;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 読み取り専用のトランザクションをレプリカへ、それ以外をプライマリへ振り分けるデータソース.
+ * レプリカの遅延が大きい場合や、レプリカに接続できない場合は、読み取り専用でもプライマリを使います。
+ * トランザクションの開始時に読み取り専用かどうかが決まるよう、
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}で包んで使います。
+ *
+ * @author takaram
+ *
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+	/** プライマリを表すキー */
+	public static final String PRIMARY = "primary";
+	/** レプリカを表すキー */
+	public static final String REPLICA = "replica";
+
+	private final ReplicaLagMonitor replicaLagMonitor;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param replicaLagMonitor レプリカの遅延の監視
+	 */
+	public ReadReplicaRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+		this.replicaLagMonitor = replicaLagMonitor;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaLagMonitor.isReplicaUsable()) {
+			return REPLICA;
+		}
+		return PRIMARY;
+	}
+}
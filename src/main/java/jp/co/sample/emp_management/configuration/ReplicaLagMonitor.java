@@ -0,0 +1,90 @@
+package jp.co.sample.emp_management.configuration;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * レプリカの遅延を定期的に確認するクラス.
+ * 遅延が上限を超えている場合や、確認に失敗した場合は、次に確認するまでレプリカを使わないようにします。
+ * レプリカが受信済みのWALをすべて適用している場合は、最後の更新からの経過時間によらず遅延を0とします。
+ * プライマリとして動いているデータベースをレプリカに指定した場合(レプリケーションのない検証環境など)も遅延は0です。
+ *
+ * @author takaram
+ *
+ */
+public class ReplicaLagMonitor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+	/** レプリカの遅延(秒)を求めるSQL */
+	private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+			+ "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+			+ "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+	/** レプリカのデータソース */
+	private final DataSource replica;
+	private final JdbcTemplate replicaTemplate;
+	/** 許容する遅延(ミリ秒) */
+	private final long maxLagMillis;
+
+	/** 最後に確認した遅延(ミリ秒) 確認に失敗した場合は-1 */
+	private volatile long lagMillis = -1;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param replica レプリカのデータソース
+	 * @param maxLagMillis 許容する遅延(ミリ秒)
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public ReplicaLagMonitor(DataSource replica, long maxLagMillis, MeterRegistry meterRegistry) {
+		this.replica = replica;
+		this.replicaTemplate = new JdbcTemplate(replica);
+		this.maxLagMillis = maxLagMillis;
+		Gauge.builder("jdbc.replica.lag", this, monitor -> monitor.lagMillis / 1000.0).baseUnit("seconds")
+				.description("レプリカの遅延 確認に失敗した場合は負の値").register(meterRegistry);
+		Gauge.builder("jdbc.replica.usable", this, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+				.description("読み取り専用のトランザクションにレプリカを使っているかどうか").register(meterRegistry);
+	}
+
+	/**
+	 * レプリカの遅延を確認します.
+	 */
+	@Scheduled(fixedDelayString = "${employee.datasource.replica.lag-check-interval-millis:5000}")
+	public void check() {
+		try {
+			Double lagSeconds = replicaTemplate.queryForObject(LAG_SQL, Double.class);
+			long current = Math.round((lagSeconds == null ? 0 : lagSeconds) * 1000);
+			if (current > maxLagMillis && lagMillis <= maxLagMillis) {
+				LOGGER.warn("レプリカの遅延が{}msのため、プライマリから読み込みます", current);
+			}
+			lagMillis = current;
+		} catch (DataAccessException e) {
+			if (lagMillis >= 0) {
+				LOGGER.warn("レプリカの遅延を確認できないため、プライマリから読み込みます", e);
+			}
+			lagMillis = -1;
+		}
+	}
+
+	/**
+	 * レプリカを使えるかどうかを返します.
+	 *
+	 * @return 最後に確認したときに遅延が許容範囲内であればtrue
+	 */
+	public boolean isReplicaUsable() {
+		long current = lagMillis;
+		return current >= 0 && current <= maxLagMillis;
+	}
+
+	public DataSource getReplica() {
+		return replica;
+	}
+}
@@ -0,0 +1,118 @@
+package jp.co.sample.emp_management.configuration;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jp.co.sample.emp_management.domain.Page;
+
+/**
+ * リポジトリのメソッドごとに、実行時間・行数・エラー数を記録するアスペクト.
+ * 実行時間(repository.query)はp50/p95/p99とヒストグラムを、
+ * 行数(repository.query.rows)はリストまたはページを返すメソッドが取得した行数を、
+ * エラー数(repository.query.errors)は例外の種類ごとの回数を記録し、いずれもclassとmethodのタグを付けます。
+ * オーバーロードしたメソッドを区別するため、methodタグは引数の型を含めたもの(例: findAll(int,int))です。
+ *
+ * @author takaram
+ *
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+	private final MeterRegistry meterRegistry;
+	/** メソッドごとのメーター */
+	private final Map<Method, MethodMeters> metersMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * リポジトリのメソッドを実行し、計測します.
+	 *
+	 * @param joinPoint 実行するメソッド
+	 * @return メソッドの戻り値
+	 * @throws Throwable メソッドが投げた例外
+	 */
+	@Around("execution(public * jp.co.sample.emp_management.repository.EmployeeRepository.*(..))"
+			+ " || execution(public * jp.co.sample.emp_management.repository.AdministratorRepository.*(..))")
+	public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+		MethodMeters meters = metersMap.computeIfAbsent(signature.getMethod(), MethodMeters::new);
+		long start = System.nanoTime();
+		try {
+			Object result = joinPoint.proceed();
+			meters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			long rows = countRows(result);
+			if (rows >= 0) {
+				meters.rows.record(rows);
+			}
+			return result;
+		} catch (Throwable e) {
+			meters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			Counter.builder("repository.query.errors").description("リポジトリのメソッドが例外を投げた回数")
+					.tag("class", meters.className).tag("method", meters.methodName)
+					.tag("exception", e.getClass().getSimpleName()).register(meterRegistry).increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * 戻り値から行数を求めます.
+	 * 件数(COUNT)などの整数や1件分のオブジェクトは行数を表さないため記録しません。
+	 *
+	 * @param result メソッドの戻り値
+	 * @return リストは要素数、ページは取得した件数 それ以外は-1
+	 */
+	private static long countRows(Object result) {
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof Page) {
+			return ((Page<?>) result).getContent().size();
+		}
+		return -1;
+	}
+
+	/**
+	 * 1つのメソッドのメーター.
+	 */
+	private class MethodMeters {
+		private final String className;
+		private final String methodName;
+		private final Timer timer;
+		private final DistributionSummary rows;
+
+		private MethodMeters(Method method) {
+			className = method.getDeclaringClass().getSimpleName();
+			StringJoiner joiner = new StringJoiner(",", method.getName() + "(", ")");
+			for (Class<?> parameterType : method.getParameterTypes()) {
+				joiner.add(parameterType.getSimpleName());
+			}
+			methodName = joiner.toString();
+			timer = Timer.builder("repository.query").description("リポジトリのメソッドの実行時間")
+					.tag("class", className).tag("method", methodName)
+					.publishPercentiles(0.5, 0.95, 0.99).publishPercentileHistogram().register(meterRegistry);
+			rows = DistributionSummary.builder("repository.query.rows").description("リポジトリのメソッドが扱った行数")
+					.tag("class", className).tag("method", methodName).register(meterRegistry);
+		}
+	}
+}
@@ -1,22 +1,108 @@
 package jp.co.sample.emp_management.configuration;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.util.matcher.RequestHeaderRequestMatcher;
+import org.springframework.util.StringUtils;
+
+import jp.co.sample.emp_management.service.AdaptiveBCryptPasswordEncoder;
 
 @EnableWebSecurity
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
+	/** ログイン中の管理者の保持方法(session または token) */
+	@Value("${employee.auth.mode:session}")
+	private String authMode;
+
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
 		http.authorizeRequests()
 			.anyRequest().permitAll();
+		if ("token".equals(authMode)) {
+			// サーバーに状態を持たないよう、CSRFトークンもセッションではなくCookieに保持する
+			http.csrf()
+				.csrfTokenRepository(new CookieCsrfTokenRepository());
+			http.sessionManagement()
+				.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+		}
+	}
+
+	/**
+	 * 管理用のエンドポイント(Actuator)の設定.
+	 * health、info以外はBASIC認証でACTUATORロールのユーザー(spring.security.user)だけに公開します。
+	 * 認証情報を毎回送る前提のため、セッションは作りません。
+	 * CSRFトークンはAuthorizationヘッダーで認証情報を送ったリクエストにだけ求めず、匿名のリクエストには求めます。
+	 * 管理者のパスワードのエンコーダー(BCrypt)ではなく、{id}の接頭辞でエンコーダーを選ぶ専用の照合を使い、
+	 * 接頭辞のないパスワード(生成したものを含む)はそのまま照合します。
+	 */
+	@Configuration
+	@Order(1)
+	public static class ActuatorSecurityConfiguration extends WebSecurityConfigurerAdapter {
+		@Autowired
+		private SecurityProperties securityProperties;
+
+		@Override
+		@SuppressWarnings("deprecation")
+		protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+			DelegatingPasswordEncoder passwordEncoder = (DelegatingPasswordEncoder) PasswordEncoderFactories
+					.createDelegatingPasswordEncoder();
+			passwordEncoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+			SecurityProperties.User user = securityProperties.getUser();
+			auth.inMemoryAuthentication()
+				.passwordEncoder(passwordEncoder)
+				.withUser(user.getName())
+				.password(user.getPassword())
+				.roles(StringUtils.toStringArray(user.getRoles()));
+		}
+
+		@Override
+		protected void configure(HttpSecurity http) throws Exception {
+			http.requestMatcher(EndpointRequest.toAnyEndpoint())
+				.authorizeRequests()
+				.requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll()
+				.anyRequest().hasRole("ACTUATOR");
+			http.httpBasic();
+			http.sessionManagement()
+				.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+			http.csrf()
+				.ignoringRequestMatchers(new RequestHeaderRequestMatcher(HttpHeaders.AUTHORIZATION));
+		}
 	}
 
+	/**
+	 * パスワードのエンコーダーを作成します.
+	 * コストを指定しない場合は、照合1回が目標の時間になるよう起動したマシンで測って決めます。
+	 *
+	 * @param strength BCryptのコスト 0の場合は測って決める
+	 * @param targetMillis 照合1回の目標の時間(ミリ秒)
+	 * @param minStrength 測って決める場合の最小のコスト
+	 * @param maxStrength 測って決める場合の最大のコスト
+	 * @return パスワードのエンコーダー
+	 */
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public AdaptiveBCryptPasswordEncoder passwordEncoder(@Value("${employee.password.bcrypt.strength:0}") int strength,
+			@Value("${employee.password.bcrypt.target-millis:100}") long targetMillis,
+			@Value("${employee.password.bcrypt.min-strength:10}") int minStrength,
+			@Value("${employee.password.bcrypt.max-strength:16}") int maxStrength) {
+		if (strength > 0) {
+			return new AdaptiveBCryptPasswordEncoder(strength);
+		}
+		return AdaptiveBCryptPasswordEncoder.calibrate(targetMillis, minStrength, maxStrength);
 	}
 }
@@ -0,0 +1,53 @@
+package jp.co.sample.emp_management.configuration;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.service.ZipCodeIndex;
+
+/**
+ * 郵便番号の索引を管理するActuatorのエンドポイント.
+ * GET /actuator/zipcode で索引の状態を返し、POST /actuator/zipcode で郵便番号データを読み込み直します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+@Endpoint(id = "zipcode")
+public class ZipCodeEndpoint {
+	@Autowired
+	private ZipCodeIndex zipCodeIndex;
+
+	/**
+	 * 索引の状態を返します.
+	 *
+	 * @return 郵便番号データのパス、郵便番号の数、読み込んだ日時
+	 */
+	@ReadOperation
+	public Map<String, Object> info() {
+		Map<String, Object> info = new LinkedHashMap<>();
+		info.put("path", zipCodeIndex.getPath().toString());
+		info.put("size", zipCodeIndex.size());
+		info.put("loadedAt", zipCodeIndex.getLoadedAt());
+		return info;
+	}
+
+	/**
+	 * 郵便番号データを読み込み直します.
+	 *
+	 * @return 読み込み直した後の索引の状態
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	@WriteOperation
+	public Map<String, Object> reload() throws IOException {
+		zipCodeIndex.reload();
+		return info();
+	}
+}
@@ -1,9 +1,15 @@
 package jp.co.sample.emp_management.controller;
 
-import javax.servlet.http.HttpSession;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -15,6 +21,7 @@ import jp.co.sample.emp_management.domain.Administrator;
 import jp.co.sample.emp_management.form.InsertAdministratorForm;
 import jp.co.sample.emp_management.form.LoginForm;
 import jp.co.sample.emp_management.service.AdministratorService;
+import jp.co.sample.emp_management.service.LoginThrottledException;
 
 /**
  * 管理者情報を操作するコントローラー.
@@ -25,12 +32,18 @@ import jp.co.sample.emp_management.service.AdministratorService;
 @Controller
 @RequestMapping("/")
 public class AdministratorController {
+	/** パスワードの処理が混み合っている場合に、再試行までの目安として返す秒数 */
+	private static final String BUSY_RETRY_AFTER_SECONDS = "5";
+	/** パスワードの処理が混み合っている場合のエラーメッセージ */
+	private static final String BUSY_MESSAGE = "混み合っています。しばらくしてから再度お試しください。";
+	/** メールアドレスが登録済みの場合のエラーメッセージ */
+	private static final String ALREADY_REGISTERED_MESSAGE = "このメールアドレスは既に登録されています";
 
 	@Autowired
 	private AdministratorService administratorService;
 	
 	@Autowired
-	private HttpSession session;
+	private LoginAdministratorStore loginAdministratorStore;
 
 	/**
 	 * 使用するフォームオブジェクトをリクエストスコープに格納する.
@@ -68,13 +81,16 @@ public class AdministratorController {
 	 *            管理者情報用フォーム
 	 * @param result
 	 *            BindingResultオブジェクト
+	 * @param response
+	 *            レスポンス
 	 * @return ログイン画面へリダイレクト
 	 */
 	@RequestMapping("/insert")
-	public String insert(@Validated InsertAdministratorForm form, BindingResult result) {
+	public String insert(@Validated InsertAdministratorForm form, BindingResult result,
+			HttpServletResponse response) {
 		// メールアドレスが登録済みならエラー
 		if (administratorService.isAlreadyRegistered(form.getMailAddress())) {
-			result.rejectValue("mailAddress", null, "このメールアドレスは既に登録されています");
+			result.rejectValue("mailAddress", null, ALREADY_REGISTERED_MESSAGE);
 		}
 		// 確認用パスワードが一致しなければエラー
 		if (!form.getPassword().equals(form.getPasswordConfirmation())) {
@@ -88,7 +104,18 @@ public class AdministratorController {
 		Administrator administrator = new Administrator();
 		// フォームからドメインにプロパティ値をコピー
 		BeanUtils.copyProperties(form, administrator);
-		administratorService.insert(administrator);
+		try {
+			administratorService.insert(administrator);
+		} catch (DuplicateKeyException e) {
+			// 確認した後に同じメールアドレスが登録された場合
+			result.rejectValue("mailAddress", null, ALREADY_REGISTERED_MESSAGE);
+			return "administrator/insert";
+		} catch (RejectedExecutionException e) {
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.setHeader(HttpHeaders.RETRY_AFTER, BUSY_RETRY_AFTER_SECONDS);
+			result.rejectValue("password", null, BUSY_MESSAGE);
+			return "administrator/insert";
+		}
 		return "redirect:/";
 	}
 
@@ -112,16 +139,35 @@ public class AdministratorController {
 	 *            管理者情報用フォーム
 	 * @param result
 	 *            エラー情報格納用オブジェクト
+	 * @param request
+	 *            リクエスト
+	 * @param response
+	 *            レスポンス 混み合っている場合は503、失敗が続いている場合は429を返します
 	 * @return ログイン後の従業員一覧画面
 	 */
 	@RequestMapping("/login")
-	public String login(LoginForm form, BindingResult result, Model model) {
-		Administrator administrator = administratorService.login(form.getMailAddress(), form.getPassword());
+	public String login(LoginForm form, BindingResult result, Model model, HttpServletRequest request,
+			HttpServletResponse response) {
+		Administrator administrator;
+		try {
+			administrator = administratorService.login(form.getMailAddress(), form.getPassword(),
+					request.getRemoteAddr());
+		} catch (LoginThrottledException e) {
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+			result.reject(null, e.getMessage());
+			return toLogin();
+		} catch (RejectedExecutionException e) {
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.setHeader(HttpHeaders.RETRY_AFTER, BUSY_RETRY_AFTER_SECONDS);
+			result.reject(null, BUSY_MESSAGE);
+			return toLogin();
+		}
 		if (administrator == null) {
 			result.reject(null, "メールアドレスまたはパスワードが不正です。");
 			return toLogin();
 		}
-		session.setAttribute("administratorName", administrator.getName());
+		loginAdministratorStore.save(administrator, request, response);
 		return "forward:/employee/showList";
 	}
 	
@@ -131,11 +177,15 @@ public class AdministratorController {
 	/**
 	 * ログアウトをします. (SpringSecurityに任せるためコメントアウトしました)
 	 * 
+	 * @param request
+	 *            リクエスト
+	 * @param response
+	 *            レスポンス
 	 * @return ログイン画面
 	 */
 	@RequestMapping(value = "/logout")
-	public String logout() {
-		session.invalidate();
+	public String logout(HttpServletRequest request, HttpServletResponse response) {
+		loginAdministratorStore.clear(request, response);
 		return "redirect:/";
 	}
 	
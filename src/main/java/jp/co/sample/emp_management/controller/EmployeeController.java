@@ -3,21 +3,56 @@ package jp.co.sample.emp_management.controller;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jp.co.sample.emp_management.domain.BatchUpdateResult;
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeColumn;
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSearchResult;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.ImportResult;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.form.DependentsCountForm;
 import jp.co.sample.emp_management.form.NewEmployeeForm;
 import jp.co.sample.emp_management.form.UpdateEmployeeForm;
+import jp.co.sample.emp_management.service.EmployeeExportService;
+import jp.co.sample.emp_management.service.EmployeeImportService;
 import jp.co.sample.emp_management.service.EmployeeService;
+import jp.co.sample.emp_management.service.ImageUploadService;
+import jp.co.sample.emp_management.service.InvalidImageException;
 
 /**
  * 従業員情報を操作するコントローラー.
@@ -28,9 +63,25 @@ import jp.co.sample.emp_management.service.EmployeeService;
 @Controller
 @RequestMapping("/employee")
 public class EmployeeController {
+	private static final long NAME_CANDIDATES_MAX_AGE_SECONDS = 60;
+	private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+	/** メールアドレスが登録済みの場合のエラーメッセージ */
+	private static final String ALREADY_REGISTERED_MESSAGE = "このメールアドレスは既に登録されています";
 
 	@Autowired
 	private EmployeeService employeeService;
+
+	@Autowired
+	private EmployeeExportService employeeExportService;
+
+	@Autowired
+	private EmployeeImportService employeeImportService;
+
+	@Autowired
+	private ImageUploadService imageUploadService;
+
+	@Autowired
+	private Validator validator;
 	
 	/**
 	 * 更新時に使用するフォームオブジェクトをリクエストスコープに格納する.
@@ -58,29 +109,41 @@ public class EmployeeController {
 	/**
 	 * 従業員一覧画面を出力します.
 	 * 
+	 * 前後のページへはカーソルで移動し、ページ番号の指定はそれ以外の移動に使います。
+	 * 
 	 * @param page ページ番号
+	 * @param after このカーソルの次のページを表示する場合に指定
+	 * @param before このカーソルの前のページを表示する場合に指定
 	 * @param model モデル
 	 * @return 従業員一覧画面
 	 */
 	@RequestMapping("/showList")
-	public String showList(Integer page, Model model) {
+	public String showList(Integer page, String after, String before, Model model) {
 		if (page == null) {
 			page = 1;
 		}
-		List<Employee> employeeList = employeeService.showList(page);
+		EmployeeCursor afterCursor = EmployeeCursor.decode(after);
+		EmployeeCursor beforeCursor = EmployeeCursor.decode(before);
+		Page<EmployeeSummary> employeePage;
+		if (afterCursor != null) {
+			employeePage = employeeService.showListAfter(afterCursor);
+		} else if (beforeCursor != null) {
+			employeePage = employeeService.showListBefore(beforeCursor);
+		} else {
+			employeePage = employeeService.showList(page);
+		}
+		List<EmployeeSummary> employeeList = employeePage.getContent();
 		model.addAttribute("employeeList", employeeList);
+		addCursors(employeeList, model);
 
 		model.addAttribute("currentPage", page);
-		int maxPage = employeeService.getMaxPageCount();
+		int maxPage = employeePage.getMaxPage();
 		model.addAttribute("maxPage", maxPage);
 		model.addAttribute("shownPageRange", calcPageRange(page, maxPage));
 
 		String url = "/employee/showList";
 		model.addAttribute("url", url);
 
-		List<Employee> allEmployeeList = employeeService.showList();
-		model.addAttribute("allEmployeeList", allEmployeeList);
-
 		return "employee/list";
 	}
 
@@ -89,23 +152,28 @@ public class EmployeeController {
 	 *
 	 * @param name 検索する名前
 	 * @param page ページ番号
+	 * @param after このカーソルの次のページを表示する場合に指定
+	 * @param before このカーソルの前のページを表示する場合に指定
 	 * @param model モデル
 	 * @return 検索でヒットした従業員の一覧画面
 	 */
 	@RequestMapping("/search")
-	public String search(String name, Integer page, Model model) {
+	public String search(String name, Integer page, String after, String before, Model model) {
 		if (page == null) {
 			page = 1;
 		}
 
-		List<Employee> employeeList = employeeService.search(name, page);
-		int maxPage = employeeService.getMaxPageCount(name);
-		if (employeeList.isEmpty()) {
+		EmployeeCursor afterCursor = EmployeeCursor.decode(after);
+		EmployeeCursor beforeCursor = EmployeeCursor.decode(before);
+		EmployeeSearchResult result = employeeService.searchOrShowList(name, page, afterCursor, beforeCursor);
+		if (!result.isFound()) {
 			model.addAttribute("message", "名前に「" + name + "」を含む従業員は見つかりませんでした");
-			employeeList = employeeService.showList(page);
-			maxPage = employeeService.getMaxPageCount();
 		}
+		Page<EmployeeSummary> employeePage = result.getPage();
+		List<EmployeeSummary> employeeList = employeePage.getContent();
+		int maxPage = employeePage.getMaxPage();
 		model.addAttribute("employeeList", employeeList);
+		addCursors(employeeList, model);
 
 		model.addAttribute("currentPage", page);
 		model.addAttribute("maxPage", maxPage);
@@ -118,12 +186,25 @@ public class EmployeeController {
 			throw new IllegalStateException(e);
 		}
 
-		List<Employee> allEmployeeList = employeeService.showList();
-		model.addAttribute("allEmployeeList", allEmployeeList);
-
 		return "employee/list";
 	}
 
+	/**
+	 * 検索ボックスの入力補完に使う従業員名の候補をJSONで返します.
+	 * 候補は同じ入力に対して変わりにくいため、ブラウザで短時間キャッシュさせます。
+	 *
+	 * @param term 入力途中の文字列
+	 * @return 入力途中の文字列で始まる従業員名のリスト
+	 */
+	@ResponseBody
+	@RequestMapping("/autocomplete")
+	public ResponseEntity<List<String>> autocomplete(String term) {
+		List<String> nameList = employeeService.suggestNames(term);
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.maxAge(NAME_CANDIDATES_MAX_AGE_SECONDS, TimeUnit.SECONDS))
+				.body(nameList);
+	}
+
 	/////////////////////////////////////////////////////
 	// ユースケース：従業員詳細を表示する
 	/////////////////////////////////////////////////////
@@ -163,6 +244,54 @@ public class EmployeeController {
 		return "redirect:/employee/showList";
 	}
 
+	/**
+	 * 複数の従業員の扶養人数をまとめて更新します.
+	 * リクエストボディには{"id":1,"dependentsCount":2}形式の要素を並べたJSON配列を送ります。
+	 * 不正な値の要素は更新せずにエラーとして返し、残りの要素は1つのトランザクションで更新します。
+	 * nullの要素がある場合は何も更新せず、その要素ごとのエラーを付けて400を返します。
+	 *
+	 * @param forms 従業員ごとの変更内容
+	 * @return 更新件数、該当する従業員がいなかったID、不正な要素のエラーを含む更新結果
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/updateDependentsCounts", method = RequestMethod.POST)
+	public ResponseEntity<BatchUpdateResult> updateDependentsCounts(@RequestBody List<DependentsCountForm> forms) {
+		List<String> nullErrorList = new ArrayList<>();
+		for (int i = 0; i < forms.size(); i++) {
+			if (forms.get(i) == null) {
+				nullErrorList.add((i + 1) + "件目: 要素がnullです");
+			}
+		}
+		if (!nullErrorList.isEmpty()) {
+			BatchUpdateResult result = new BatchUpdateResult();
+			result.setRequestedCount(forms.size());
+			result.getErrors().addAll(nullErrorList);
+			return ResponseEntity.badRequest().body(result);
+		}
+
+		List<Employee> employeeList = new ArrayList<>(forms.size());
+		List<String> errorList = new ArrayList<>();
+		for (int i = 0; i < forms.size(); i++) {
+			DependentsCountForm form = forms.get(i);
+			Set<ConstraintViolation<DependentsCountForm>> violations = validator.validate(form);
+			if (!violations.isEmpty()) {
+				for (ConstraintViolation<DependentsCountForm> violation : violations) {
+					errorList.add((i + 1) + "件目: " + violation.getMessage());
+				}
+				continue;
+			}
+			Employee employee = new Employee();
+			employee.setId(form.getId());
+			employee.setDependentsCount(form.getDependentsCount());
+			employeeList.add(employee);
+		}
+
+		BatchUpdateResult result = employeeService.updateDependentsCounts(employeeList);
+		result.setRequestedCount(forms.size());
+		result.getErrors().addAll(errorList);
+		return ResponseEntity.ok(result);
+	}
+
 	/////////////////////////////////////////////////////
 	// ユースケース：従業員情報を登録する
 	/////////////////////////////////////////////////////
@@ -178,6 +307,7 @@ public class EmployeeController {
 
 	/**
 	 * 従業員情報を登録します.
+	 * 画像は、画面で先にアップロードしたキーがあればそれを使い、なければ送信されたファイルを保存します。
 	 *
 	 * @param form リクエストパラメータを受け取るフォーム
 	 * @param result BindingResult
@@ -185,29 +315,146 @@ public class EmployeeController {
 	 */
 	@RequestMapping("/create")
 	public String create(@Validated NewEmployeeForm form, BindingResult result) {
-		if (form.getImage().isEmpty()) {
+		boolean uploaded = imageUploadService.exists(form.getImageKey());
+		if (!uploaded && (form.getImage() == null || form.getImage().isEmpty())) {
 			result.rejectValue("image", null, "画像を選択してください");
 		}
 		if (result.hasFieldErrors("zipCode1") || result.hasFieldErrors("zipCode2")) {
 			result.rejectValue("zipCode", null, "郵便番号を入力してください");
 		}
+		if (!result.hasFieldErrors("mailAddress") && employeeService.isMailAddressRegistered(form.getMailAddress())) {
+			result.rejectValue("mailAddress", null, ALREADY_REGISTERED_MESSAGE);
+		}
 		if (result.hasErrors()) {
 			return register();
 		}
 
+		String imageKey = form.getImageKey();
+		if (!uploaded) {
+			try {
+				imageKey = imageUploadService.save(form.getImage());
+			} catch (InvalidImageException e) {
+				result.rejectValue("image", null, e.getMessage());
+				return register();
+			} catch (RejectedExecutionException e) {
+				throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+			} catch (IOException e) {
+				throw new RuntimeException("画像の保存に失敗しました", e);
+			}
+		}
 		Employee employee = new Employee();
 		BeanUtils.copyProperties(form, employee);
+		employee.setImage(imageKey);
 		try {
-			String fileName = employeeService.saveFile(form.getImage());
-			employee.setImage(fileName);
-		} catch (IOException e) {
-			throw new RuntimeException("画像の保存に失敗しました", e);
+			employeeService.create(employee);
+		} catch (DuplicateKeyException e) {
+			// 確認した後に同じメールアドレスが登録された場合
+			result.rejectValue("mailAddress", null, ALREADY_REGISTERED_MESSAGE);
+			return register();
 		}
-		employeeService.create(employee);
 
 		return "redirect:/employee/showDetail?id=" + employee.getId();
 	}
 
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員情報をエクスポートする
+	/////////////////////////////////////////////////////
+	/**
+	 * 全従業員の情報をCSVまたはTSVファイルとしてダウンロードさせます.
+	 * データベースから取得した行を順にレスポンスへ書き込むため、件数が多くてもメモリに溜め込みません。
+	 *
+	 * @param format 出力形式(csvまたはtsv)
+	 * @param columns 出力する列名のリスト 省略した場合は全列
+	 * @param gzip gzipで圧縮する場合はtrue
+	 * @return ファイルの内容を書き込むレスポンス
+	 */
+	@RequestMapping("/export")
+	public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+			@RequestParam(required = false) List<String> columns, @RequestParam(defaultValue = "false") boolean gzip) {
+		char delimiter;
+		MediaType mediaType;
+		if ("csv".equals(format)) {
+			delimiter = ',';
+			mediaType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+		} else if ("tsv".equals(format)) {
+			delimiter = '\t';
+			mediaType = new MediaType("text", "tab-separated-values", StandardCharsets.UTF_8);
+		} else {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "不正な出力形式です: " + format);
+		}
+
+		List<EmployeeColumn> columnList = new ArrayList<>();
+		if (columns == null || columns.isEmpty()) {
+			columnList.addAll(Arrays.asList(EmployeeColumn.values()));
+		} else {
+			try {
+				for (String column : columns) {
+					columnList.add(EmployeeColumn.fromColumnName(column));
+				}
+			} catch (IllegalArgumentException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+			}
+		}
+
+		String fileName = "employees." + format;
+		StreamingResponseBody body;
+		if (gzip) {
+			fileName += ".gz";
+			mediaType = new MediaType("application", "gzip");
+			body = out -> {
+				GZIPOutputStream gzipOut = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+				employeeExportService.export(columnList, delimiter, gzipOut);
+				gzipOut.finish();
+			};
+		} else {
+			body = out -> employeeExportService.export(columnList, delimiter, out);
+		}
+		return ResponseEntity.ok()
+				.contentType(mediaType)
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+				.body(body);
+	}
+
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員情報を一括登録する
+	/////////////////////////////////////////////////////
+	/**
+	 * CSVファイルの従業員情報を一括登録します.
+	 * リクエストボディをCSVファイルそのもの(Content-Type: text/csv)として受け取り、
+	 * マルチパートとして解析せずに読みながら登録するため、マルチパートの上限とは関係なく大きなファイルを登録できます。
+	 * 見出し行の形式はエクスポートしたファイルと同じです。画像列には保存済みの画像ファイル名を指定します。
+	 * Content-Lengthが上限({@code employee.import.max-size})を超える場合は、ボディを読まずに413を返します。
+	 *
+	 * @param request リクエスト(ボディはUTF-8のCSVファイル)
+	 * @return 登録件数、行ごとのエラー、処理時間を含む登録結果
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/import", method = RequestMethod.POST, consumes = "text/csv")
+	public ImportResult importCsv(HttpServletRequest request) {
+		if (request.getContentLengthLong() > employeeImportService.getMaxSize()) {
+			throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "CSVファイルのサイズが大きすぎます");
+		}
+		try {
+			return employeeImportService.importCsv(request.getInputStream());
+		} catch (IOException e) {
+			throw new RuntimeException("CSVファイルの読み込みに失敗しました", e);
+		}
+	}
+
+	/**
+	 * 前後のページへ移動するためのカーソルをリクエストスコープに格納します.
+	 *
+	 * @param employeeList 表示する従業員情報のリスト
+	 * @param model モデル
+	 */
+	private void addCursors(List<EmployeeSummary> employeeList, Model model) {
+		if (employeeList.isEmpty()) {
+			return;
+		}
+		model.addAttribute("prevCursor", EmployeeCursor.of(employeeList.get(0)).encode());
+		model.addAttribute("nextCursor", EmployeeCursor.of(employeeList.get(employeeList.size() - 1)).encode());
+	}
+
 	/**
 	 * ページ番号を表示する範囲を決定します.
 	 * 現在のページが1に近い場合は1～10、最大ページに近い場合は最後の10ページ、
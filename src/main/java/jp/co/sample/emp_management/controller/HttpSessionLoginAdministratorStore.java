@@ -0,0 +1,44 @@
+package jp.co.sample.emp_management.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+/**
+ * ログイン中の管理者をHttpSessionに保持するクラス.
+ * 複数のインスタンスで動かす場合は、スティッキーセッションかセッションの共有が必要です。
+ *
+ * @author takaram
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "employee.auth.mode", havingValue = "session", matchIfMissing = true)
+public class HttpSessionLoginAdministratorStore implements LoginAdministratorStore {
+	/** 管理者名を保持するセッション属性 */
+	private static final String SESSION_ATTRIBUTE = "administratorName";
+
+	@Override
+	public void save(Administrator administrator, HttpServletRequest request, HttpServletResponse response) {
+		request.getSession().setAttribute(SESSION_ATTRIBUTE, administrator.getName());
+		request.setAttribute(ADMINISTRATOR_NAME_ATTRIBUTE, administrator.getName());
+	}
+
+	@Override
+	public String findAdministratorName(HttpServletRequest request, HttpServletResponse response) {
+		HttpSession session = request.getSession(false);
+		return session == null ? null : (String) session.getAttribute(SESSION_ATTRIBUTE);
+	}
+
+	@Override
+	public void clear(HttpServletRequest request, HttpServletResponse response) {
+		HttpSession session = request.getSession(false);
+		if (session != null) {
+			session.invalidate();
+		}
+	}
+}
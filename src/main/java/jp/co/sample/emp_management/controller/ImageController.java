@@ -0,0 +1,268 @@
+package jp.co.sample.emp_management.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import jp.co.sample.emp_management.service.ImageStore;
+import jp.co.sample.emp_management.service.ImageUploadService;
+import jp.co.sample.emp_management.service.InvalidImageException;
+import jp.co.sample.emp_management.service.ThumbnailService;
+
+/**
+ * 従業員の画像を配信するコントローラー.
+ * 画像は{@link ImageStore}から読み込みます。一覧や詳細画面には縮小版を使います。
+ *
+ * 保存先の画像はキーが内容のハッシュ値なので内容が変わることはなく、
+ * ハッシュ値を強いETagとし、長期間の不変(immutable)キャッシュを指示します。
+ * If-None-Matchによる条件付きリクエストには304を、1つの範囲を指定したRangeリクエストには206を返します。
+ * ファイルの内容は、Tomcatのコネクタがsendfileに対応している場合(NIO/NIO2/APRでuseSendfileが有効な場合. 組み込みTomcatの既定)は
+ * sendfileに任せてヒープにコピーせずに送ります。対応していない場合はレスポンスのストリームへコピーして送ります。
+ * アップロードはリクエストボディをそのまま保存先へ書き込みます。
+ *
+ * @author takaram
+ *
+ */
+@Controller
+@RequestMapping("/image")
+public class ImageController {
+	/** Tomcatがsendfileに対応しているかを示すリクエスト属性 */
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+	/** sendfileで送るファイル名を指定するリクエスト属性 */
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+	/** sendfileで送る範囲の先頭を指定するリクエスト属性 */
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+	/** sendfileで送る範囲の末尾(この位置を含まない)を指定するリクエスト属性 */
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+	/** 内容の変わらない画像のキャッシュ指示 */
+	private static final String IMMUTABLE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic()
+			.getHeaderValue() + ", immutable";
+	/** 以前の保存先の画像のキャッシュ指示 */
+	private static final String LEGACY_CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic()
+			.getHeaderValue();
+	/** 作成前の縮小版の代わりに返す元の画像のキャッシュ指示 */
+	private static final String NO_CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private ThumbnailService thumbnailService;
+
+	@Autowired
+	private ImageUploadService imageUploadService;
+
+	/**
+	 * 画像を返します.
+	 *
+	 * @param key 画像のキーまたは以前のファイル名
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 送信に失敗した場合
+	 */
+	@RequestMapping(value = "/{key:.+}", method = { RequestMethod.GET, RequestMethod.HEAD })
+	public void show(@PathVariable String key, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		Resource resource = imageStore.open(key);
+		if (imageStore.isKey(key)) {
+			serve(resource, etag(key, ""), IMMUTABLE_CACHE_CONTROL, request, response);
+		} else {
+			serve(resource, null, LEGACY_CACHE_CONTROL, request, response);
+		}
+	}
+
+	/**
+	 * 画像の縮小版を返します.
+	 * 縮小版がまだ作成されていない場合は作成を依頼し、キャッシュさせずに元の画像を返します。
+	 *
+	 * @param key 画像のキーまたは以前のファイル名
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 送信に失敗した場合
+	 */
+	@RequestMapping(value = "/thumbnail/{key:.+}", method = { RequestMethod.GET, RequestMethod.HEAD })
+	public void showThumbnail(@PathVariable String key, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		Path thumbnail = imageStore.resolveThumbnail(key);
+		if (thumbnail != null && Files.isRegularFile(thumbnail)) {
+			Resource resource = new FileSystemResource(thumbnail);
+			if (imageStore.isKey(key)) {
+				String etag = etag(key, "-thumbnail" + thumbnailService.getSize());
+				serve(resource, etag, IMMUTABLE_CACHE_CONTROL, request, response);
+			} else {
+				serve(resource, null, LEGACY_CACHE_CONTROL, request, response);
+			}
+			return;
+		}
+		Resource original = imageStore.open(key);
+		if (original != null) {
+			thumbnailService.request(key);
+		}
+		serve(original, null, NO_CACHE_CONTROL, request, response);
+	}
+
+	/**
+	 * 画像をアップロードします.
+	 * リクエストボディを画像そのものとして受け取り、マルチパートとして解析せずに保存先へ直接書き込みます。
+	 * Content-Lengthが上限を超える場合は、ボディを読まずに413を返します。
+	 *
+	 * @param request リクエスト
+	 * @return 保存した画像のキー
+	 * @throws IOException 保存に失敗した場合
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/upload", method = RequestMethod.POST)
+	public Map<String, String> upload(HttpServletRequest request) throws IOException {
+		try {
+			String key = imageUploadService.save(request.getInputStream(), request.getContentLengthLong());
+			return Collections.singletonMap("key", key);
+		} catch (InvalidImageException e) {
+			HttpStatus status = e.getReason() == InvalidImageException.Reason.TOO_LARGE
+					? HttpStatus.PAYLOAD_TOO_LARGE
+					: HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+			throw new ResponseStatusException(status, e.getMessage(), e);
+		} catch (RejectedExecutionException e) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 画像をレスポンスに書き込みます.
+	 *
+	 * @param resource 画像 nullの場合は404を返します
+	 * @param etag ETag 付けない場合はnull
+	 * @param cacheControl Cache-Controlヘッダーの値
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 送信に失敗した場合
+	 */
+	private void serve(Resource resource, String etag, String cacheControl, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		if (resource == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag)) {
+			return;
+		}
+		MediaType mediaType = MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM);
+		response.setContentType(mediaType.toString());
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+		long length = resource.contentLength();
+		ResourceRegion region = new ResourceRegion(resource, 0, length);
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+			List<HttpRange> ranges;
+			try {
+				ranges = HttpRange.parseRanges(rangeHeader);
+			} catch (IllegalArgumentException e) {
+				ranges = null;
+			}
+			if (ranges == null || ranges.size() == 1 && ranges.get(0).getRangeStart(length) >= length) {
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			// 複数の範囲が指定された場合は全体を返す
+			if (ranges.size() == 1) {
+				region = ranges.get(0).toResourceRegion(resource);
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-"
+						+ (region.getPosition() + region.getCount() - 1) + "/" + length);
+			}
+		}
+		response.setContentLengthLong(region.getCount());
+		if (RequestMethod.HEAD.name().equals(request.getMethod())) {
+			return;
+		}
+		write(region, request, response);
+	}
+
+	/**
+	 * 画像の指定範囲をレスポンスに書き込みます.
+	 * ファイルの場合、Tomcatがsendfileに対応していればsendfileに任せ、ヒープにコピーせずに送ります。
+	 * 対応していない場合の{@link FileChannel#transferTo}は、送り先がレスポンスのストリームを包んだチャネルのため
+	 * ヒープ上のバッファを経由してコピーします(ゼロコピーにはなりません)。
+	 *
+	 * @param region 送る範囲
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 送信に失敗した場合
+	 */
+	private void write(ResourceRegion region, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		Resource resource = region.getResource();
+		long start = region.getPosition();
+		long end = start + region.getCount();
+		if (!resource.isFile()) {
+			try (InputStream in = resource.getInputStream()) {
+				StreamUtils.copyRange(in, response.getOutputStream(), start, end - 1);
+			}
+			return;
+		}
+		Path path = resource.getFile().toPath().toAbsolutePath();
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+			request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toString());
+			request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+			request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			OutputStream out = response.getOutputStream();
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			while (position < end) {
+				position += channel.transferTo(position, end - position, target);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * 画像のキーから強いETagを作成します.
+	 *
+	 * @param key 画像のキー
+	 * @param suffix 同じ画像から作った別の表現を区別するための接尾辞
+	 * @return ETag
+	 */
+	private static String etag(String key, String suffix) {
+		return "\"" + key.substring(0, key.indexOf('.')) + suffix + "\"";
+	}
+}
@@ -0,0 +1,38 @@
+package jp.co.sample.emp_management.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+
+/**
+ * ログイン中の管理者名を、画面からadministratorNameで参照できるようにするクラス.
+ * 保持する方法は{@link LoginAdministratorStore}の実装によらないため、画面はセッションを直接参照しません。
+ *
+ * @author takaram
+ *
+ */
+@ControllerAdvice(assignableTypes = { AdministratorController.class, EmployeeController.class })
+public class LoginAdministratorAdvice {
+
+	@Autowired
+	private LoginAdministratorStore loginAdministratorStore;
+
+	/**
+	 * ログイン中の管理者名を返します.
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 管理者名 ログインしていない場合はnull
+	 */
+	@ModelAttribute("administratorName")
+	public String administratorName(HttpServletRequest request, HttpServletResponse response) {
+		Object loggedIn = request.getAttribute(LoginAdministratorStore.ADMINISTRATOR_NAME_ATTRIBUTE);
+		if (loggedIn != null) {
+			return (String) loggedIn;
+		}
+		return loginAdministratorStore.findAdministratorName(request, response);
+	}
+}
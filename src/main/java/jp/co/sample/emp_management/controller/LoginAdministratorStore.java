@@ -0,0 +1,45 @@
+package jp.co.sample.emp_management.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+/**
+ * ログイン中の管理者を保持する方法.
+ * employee.auth.modeで、HttpSessionに保持する方法(session)と
+ * 署名付きのCookieに保持してサーバーには何も持たない方法(token)を選べます。
+ *
+ * @author takaram
+ *
+ */
+public interface LoginAdministratorStore {
+	/** ログインしたリクエストで、転送先にも管理者名を渡すためのリクエスト属性 */
+	String ADMINISTRATOR_NAME_ATTRIBUTE = LoginAdministratorStore.class.getName() + ".administratorName";
+
+	/**
+	 * ログインした管理者を保持します.
+	 *
+	 * @param administrator 管理者情報
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 */
+	void save(Administrator administrator, HttpServletRequest request, HttpServletResponse response);
+
+	/**
+	 * ログイン中の管理者の名前を返します.
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス 保持している情報を更新する場合に使います
+	 * @return 管理者名 ログインしていない場合はnull
+	 */
+	String findAdministratorName(HttpServletRequest request, HttpServletResponse response);
+
+	/**
+	 * ログイン中の管理者の情報を破棄します.
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 */
+	void clear(HttpServletRequest request, HttpServletResponse response);
+}
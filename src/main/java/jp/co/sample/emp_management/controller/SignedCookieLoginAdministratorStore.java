@@ -0,0 +1,87 @@
+package jp.co.sample.emp_management.controller;
+
+import java.time.Clock;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.WebUtils;
+
+import jp.co.sample.emp_management.domain.Administrator;
+import jp.co.sample.emp_management.service.AdministratorTokenCodec;
+
+/**
+ * ログイン中の管理者を署名付きのCookieに保持するクラス.
+ * サーバーには何も保持せず、Cookieの検証も鍵だけで行うため、どのインスタンスでもリクエストを受けられます。
+ * 古い鍵で作成されたトークンや、有効期間の半分を過ぎたトークンは、リクエストを受けたときに作り直します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "employee.auth.mode", havingValue = "token")
+public class SignedCookieLoginAdministratorStore implements LoginAdministratorStore {
+	/** トークンを保持するCookieの名前 */
+	private static final String COOKIE_NAME = "EMP_AUTH";
+
+	private final AdministratorTokenCodec codec;
+	/** CookieにSecure属性を付けるかどうか */
+	private final boolean secureCookie;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param keys 署名に使う鍵の一覧 「鍵ID=Base64で表した32バイト以上の鍵」をカンマで区切って並べます
+	 * @param currentKeyId 新しいトークンの署名に使う鍵の鍵ID
+	 * @param ttlSeconds トークンの有効期間(秒)
+	 * @param secureCookie CookieにSecure属性を付けるかどうか
+	 */
+	public SignedCookieLoginAdministratorStore(@Value("${employee.auth.token.keys}") String keys,
+			@Value("${employee.auth.token.current-key-id}") String currentKeyId,
+			@Value("${employee.auth.token.ttl-seconds:3600}") long ttlSeconds,
+			@Value("${employee.auth.token.secure-cookie:false}") boolean secureCookie) {
+		this.codec = new AdministratorTokenCodec(keys, currentKeyId, ttlSeconds, Clock.systemUTC());
+		this.secureCookie = secureCookie;
+	}
+
+	@Override
+	public void save(Administrator administrator, HttpServletRequest request, HttpServletResponse response) {
+		writeCookie(codec.encode(administrator), (int) codec.getTtlSeconds(), request, response);
+		request.setAttribute(ADMINISTRATOR_NAME_ATTRIBUTE, administrator.getName());
+	}
+
+	@Override
+	public String findAdministratorName(HttpServletRequest request, HttpServletResponse response) {
+		Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+		if (cookie == null) {
+			return null;
+		}
+		AdministratorTokenCodec.Token token = codec.decode(cookie.getValue());
+		if (token == null) {
+			return null;
+		}
+		if (codec.needsRenewal(token) && !response.isCommitted()) {
+			save(token.getAdministrator(), request, response);
+		}
+		return token.getAdministrator().getName();
+	}
+
+	@Override
+	public void clear(HttpServletRequest request, HttpServletResponse response) {
+		writeCookie("", 0, request, response);
+	}
+
+	private void writeCookie(String value, int maxAge, HttpServletRequest request, HttpServletResponse response) {
+		Cookie cookie = new Cookie(COOKIE_NAME, value);
+		cookie.setPath(StringUtils.hasLength(request.getContextPath()) ? request.getContextPath() : "/");
+		cookie.setMaxAge(maxAge);
+		cookie.setHttpOnly(true);
+		cookie.setSecure(secureCookie);
+		response.addCookie(cookie);
+	}
+}
@@ -0,0 +1,43 @@
+package jp.co.sample.emp_management.controller;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import jp.co.sample.emp_management.service.ZipCodeIndex;
+
+/**
+ * 郵便番号から住所を検索するコントローラー.
+ *
+ * @author takaram
+ *
+ */
+@Controller
+@RequestMapping("/zipcode")
+public class ZipCodeController {
+	private static final long ADDRESS_MAX_AGE_HOURS = 24;
+
+	@Autowired
+	private ZipCodeIndex zipCodeIndex;
+
+	/**
+	 * 郵便番号に該当する住所を返します.
+	 *
+	 * @param zipcode 郵便番号(ハイフンの有無は問いません)
+	 * @return 住所のリスト 該当しない場合は空のリスト
+	 */
+	@ResponseBody
+	@RequestMapping("")
+	public ResponseEntity<List<String>> find(@RequestParam String zipcode) {
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.maxAge(ADDRESS_MAX_AGE_HOURS, TimeUnit.HOURS))
+				.body(zipCodeIndex.find(zipcode));
+	}
+}
@@ -0,0 +1,51 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 従業員情報の一括更新の結果を表すクラス.
+ *
+ * @author takaram
+ *
+ */
+public class BatchUpdateResult {
+	/** 更新を依頼された件数 */
+	private int requestedCount;
+	/** 更新できた件数 */
+	private int updatedCount;
+	/** 該当する従業員がいなかったID */
+	private final List<Integer> notFoundIds = new ArrayList<>();
+	/** 不正な値のため更新しなかった要素のエラー */
+	private final List<String> errors = new ArrayList<>();
+
+	public int getRequestedCount() {
+		return requestedCount;
+	}
+
+	public void setRequestedCount(int requestedCount) {
+		this.requestedCount = requestedCount;
+	}
+
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+
+	public void setUpdatedCount(int updatedCount) {
+		this.updatedCount = updatedCount;
+	}
+
+	public List<Integer> getNotFoundIds() {
+		return notFoundIds;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchUpdateResult [requestedCount=" + requestedCount + ", updatedCount=" + updatedCount
+				+ ", notFoundIds=" + notFoundIds + ", errors=" + errors + "]";
+	}
+}
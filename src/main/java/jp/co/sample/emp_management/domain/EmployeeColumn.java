@@ -0,0 +1,57 @@
+package jp.co.sample.emp_management.domain;
+
+/**
+ * employeesテーブルの列を表す列挙型.
+ * エクスポートなどで利用者が列を選ぶ場合に、指定できる列をこの列挙型に限定します。
+ *
+ * @author takaram
+ *
+ */
+public enum EmployeeColumn {
+	ID("id", "ID"),
+	NAME("name", "従業員名"),
+	IMAGE("image", "画像"),
+	GENDER("gender", "性別"),
+	HIRE_DATE("hire_date", "入社日"),
+	MAIL_ADDRESS("mail_address", "メールアドレス"),
+	ZIP_CODE("zip_code", "郵便番号"),
+	ADDRESS("address", "住所"),
+	TELEPHONE("telephone", "電話番号"),
+	SALARY("salary", "給料"),
+	CHARACTERISTICS("characteristics", "特性"),
+	DEPENDENTS_COUNT("dependents_count", "扶養人数");
+
+	/** 列名 */
+	private final String columnName;
+	/** 表示名 */
+	private final String label;
+
+	private EmployeeColumn(String columnName, String label) {
+		this.columnName = columnName;
+		this.label = label;
+	}
+
+	/**
+	 * 列名から列挙型の値を取得します.
+	 *
+	 * @param columnName 列名
+	 * @return 列挙型の値
+	 * @throws IllegalArgumentException 該当する列がない場合
+	 */
+	public static EmployeeColumn fromColumnName(String columnName) {
+		for (EmployeeColumn column : values()) {
+			if (column.columnName.equals(columnName)) {
+				return column;
+			}
+		}
+		throw new IllegalArgumentException("不正な列名です: " + columnName);
+	}
+
+	public String getColumnName() {
+		return columnName;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
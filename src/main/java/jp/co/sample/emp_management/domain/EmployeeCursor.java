@@ -0,0 +1,106 @@
+package jp.co.sample.emp_management.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 従業員一覧の並び(入社日の降順、重複の場合はIDの降順)における位置を表すカーソル.
+ * 画面には{@link #encode()}で文字列化した値を渡し、中身は公開しません。
+ * 入社日はtimestamp列のため、{@link Timestamp}の場合はミリ秒未満も含めて保持します。
+ *
+ * @author takaram
+ *
+ */
+public class EmployeeCursor {
+	/** 入社日 */
+	private final Date hireDate;
+	/** ID */
+	private final Integer id;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param hireDate 入社日
+	 * @param id       ID
+	 */
+	public EmployeeCursor(Date hireDate, Integer id) {
+		this.hireDate = hireDate;
+		this.id = id;
+	}
+
+	/**
+	 * 従業員の位置を表すカーソルを作成します.
+	 *
+	 * @param employee 従業員情報
+	 * @return カーソル
+	 */
+	public static EmployeeCursor of(Employee employee) {
+		return new EmployeeCursor(employee.getHireDate(), employee.getId());
+	}
+
+	/**
+	 * 一覧に表示する従業員の位置を表すカーソルを作成します.
+	 *
+	 * @param employee 一覧表示用の従業員情報
+	 * @return カーソル
+	 */
+	public static EmployeeCursor of(EmployeeSummary employee) {
+		return new EmployeeCursor(employee.getHireDate(), employee.getId());
+	}
+
+	/**
+	 * カーソルをURLに埋め込める文字列にします.
+	 *
+	 * @return 文字列化したカーソル
+	 */
+	public String encode() {
+		String raw = hireDate.getTime() + "." + id;
+		if (hireDate instanceof Timestamp) {
+			raw += "." + ((Timestamp) hireDate).getNanos();
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * {@link #encode()}で文字列化したカーソルを復元します.
+	 *
+	 * @param token 文字列化したカーソル
+	 * @return カーソル 空または不正な文字列の場合はnullを返します
+	 */
+	public static EmployeeCursor decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+			String[] parts = raw.split("\\.", -1);
+			if (parts.length < 2 || parts.length > 3) {
+				return null;
+			}
+			Timestamp hireDate = new Timestamp(Long.parseLong(parts[0]));
+			int id = Integer.parseInt(parts[1]);
+			if (parts.length == 3) {
+				hireDate.setNanos(Integer.parseInt(parts[2]));
+			}
+			return new EmployeeCursor(hireDate, id);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public Date getHireDate() {
+		return hireDate;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeCursor [hireDate=" + hireDate + ", id=" + id + "]";
+	}
+
+}
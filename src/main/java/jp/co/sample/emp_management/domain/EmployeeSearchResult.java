@@ -0,0 +1,36 @@
+package jp.co.sample.emp_management.domain;
+
+/**
+ * 従業員の名前検索の結果を表すクラス.
+ * 見つからなかった場合は、代わりに取得した従業員一覧のページを保持します。
+ *
+ * @author takaram
+ *
+ */
+public class EmployeeSearchResult {
+	/** 表示する従業員情報のページ */
+	private Page<EmployeeSummary> page;
+	/** 名前に一致する従業員が見つかったかどうか */
+	private boolean found;
+
+	public Page<EmployeeSummary> getPage() {
+		return page;
+	}
+
+	public void setPage(Page<EmployeeSummary> page) {
+		this.page = page;
+	}
+
+	public boolean isFound() {
+		return found;
+	}
+
+	public void setFound(boolean found) {
+		this.found = found;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeSearchResult [page=" + page + ", found=" + found + "]";
+	}
+}
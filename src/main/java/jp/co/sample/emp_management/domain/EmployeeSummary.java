@@ -0,0 +1,85 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.Date;
+
+/**
+ * 従業員一覧の表示に必要な項目だけを持つ従業員情報.
+ * 一覧・検索画面では特性や住所などを使わないため、このクラスで取得してデータ量を抑えます。
+ *
+ * @author takaram
+ *
+ */
+public class EmployeeSummary {
+	/** id */
+	private Integer id;
+	/** 従業員名 */
+	private String name;
+	/** 入社日 */
+	private Date hireDate;
+	/** 扶養人数 */
+	private Integer dependentsCount;
+
+	/**
+	 * 引数無しのコンストラクタ.
+	 */
+	public EmployeeSummary() {
+	}
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param id
+	 *            ID
+	 * @param name
+	 *            従業員名
+	 * @param hireDate
+	 *            入社日
+	 * @param dependentsCount
+	 *            扶養人数
+	 */
+	public EmployeeSummary(Integer id, String name, Date hireDate, Integer dependentsCount) {
+		this.id = id;
+		this.name = name;
+		this.hireDate = hireDate;
+		this.dependentsCount = dependentsCount;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Date getHireDate() {
+		return hireDate;
+	}
+
+	public void setHireDate(Date hireDate) {
+		this.hireDate = hireDate;
+	}
+
+	public Integer getDependentsCount() {
+		return dependentsCount;
+	}
+
+	public void setDependentsCount(Integer dependentsCount) {
+		this.dependentsCount = dependentsCount;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeSummary [id=" + id + ", name=" + name + ", hireDate=" + hireDate + ", dependentsCount="
+				+ dependentsCount + "]";
+	}
+
+}
@@ -0,0 +1,105 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 従業員情報の一括登録の結果を表すクラス.
+ *
+ * @author takaram
+ *
+ */
+public class ImportResult {
+	/** 読み込んだデータ行数(見出し行を除く) */
+	private int totalCount;
+	/** 登録できた件数 */
+	private int importedCount;
+	/** 処理にかかった時間(ミリ秒) */
+	private long elapsedMillis;
+	/** 登録できなかった行のエラー */
+	private final List<RowError> errors = new ArrayList<>();
+
+	/**
+	 * 登録できなかった行のエラーを追加します.
+	 *
+	 * @param line 行番号
+	 * @param messages エラーメッセージ
+	 */
+	public void addError(int line, List<String> messages) {
+		errors.add(new RowError(line, messages));
+	}
+
+	/**
+	 * 1秒あたりに登録できた件数を返します.
+	 *
+	 * @return 1秒あたりの登録件数
+	 */
+	public double getRowsPerSecond() {
+		if (elapsedMillis == 0) {
+			return importedCount;
+		}
+		return importedCount * 1000.0 / elapsedMillis;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public void setTotalCount(int totalCount) {
+		this.totalCount = totalCount;
+	}
+
+	public int getImportedCount() {
+		return importedCount;
+	}
+
+	public void setImportedCount(int importedCount) {
+		this.importedCount = importedCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public List<RowError> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportResult [totalCount=" + totalCount + ", importedCount=" + importedCount + ", elapsedMillis="
+				+ elapsedMillis + ", errors=" + errors + "]";
+	}
+
+	/**
+	 * 1行分のエラー.
+	 */
+	public static class RowError {
+		/** 行番号 */
+		private final int line;
+		/** エラーメッセージ */
+		private final List<String> messages;
+
+		public RowError(int line, List<String> messages) {
+			this.line = line;
+			this.messages = messages;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public List<String> getMessages() {
+			return messages;
+		}
+
+		@Override
+		public String toString() {
+			return "RowError [line=" + line + ", messages=" + messages + "]";
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.List;
+
+/**
+ * 一覧の1ページ分のデータと全体の件数を表すクラス.
+ *
+ * @author takaram
+ *
+ * @param <T> 一覧の要素の型
+ */
+public class Page<T> {
+	/** このページのデータ */
+	private final List<T> content;
+	/** 全体の件数 */
+	private final int totalCount;
+	/** 1ページあたりの件数 */
+	private final int pageSize;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param content このページのデータ
+	 * @param totalCount 全体の件数
+	 * @param pageSize 1ページあたりの件数
+	 */
+	public Page(List<T> content, int totalCount, int pageSize) {
+		this.content = content;
+		this.totalCount = totalCount;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * 最大のページ数を返します. 0件の場合も1ページとして扱います。
+	 *
+	 * @return 最大のページ数
+	 */
+	public int getMaxPage() {
+		return Math.max(totalCount - 1, 0) / pageSize + 1;
+	}
+
+	/**
+	 * このページにデータがないかどうかを返します.
+	 *
+	 * @return データがなければtrue
+	 */
+	public boolean isEmpty() {
+		return content.isEmpty();
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	@Override
+	public String toString() {
+		return "Page [content=" + content + ", totalCount=" + totalCount + ", pageSize=" + pageSize + "]";
+	}
+
+}
@@ -0,0 +1,35 @@
+package jp.co.sample.emp_management.event;
+
+import jp.co.sample.emp_management.domain.Employee;
+
+/**
+ * 従業員が登録されたことを通知するイベント.
+ * 登録したトランザクションのコミット後に受け取ることで、
+ * メモリ上の索引などをデータベースと矛盾なく更新できます。
+ *
+ * @author takaram
+ *
+ */
+public class EmployeeRegisteredEvent {
+	/** 登録された従業員情報 */
+	private final Employee employee;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param employee 登録された従業員情報
+	 */
+	public EmployeeRegisteredEvent(Employee employee) {
+		this.employee = employee;
+	}
+
+	public Employee getEmployee() {
+		return employee;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeRegisteredEvent [employee=" + employee + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+package jp.co.sample.emp_management.form;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 扶養人数の一括更新で1人分の変更内容を受け取るフォーム.
+ *
+ * @author takaram
+ *
+ */
+public class DependentsCountForm {
+	/** ID */
+	@NotNull(message = "IDを指定してください")
+	private Integer id;
+	/** 扶養人数 */
+	@NotNull(message = "扶養人数を入力してください")
+	@Min(value = 0, message = "扶養人数は0以上で入力してください")
+	private Integer dependentsCount;
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Integer getDependentsCount() {
+		return dependentsCount;
+	}
+
+	public void setDependentsCount(Integer dependentsCount) {
+		this.dependentsCount = dependentsCount;
+	}
+
+	@Override
+	public String toString() {
+		return "DependentsCountForm [id=" + id + ", dependentsCount=" + dependentsCount + "]";
+	}
+}
@@ -16,6 +16,8 @@ public class NewEmployeeForm {
 	private String name;
 	/** 画像 */
 	private MultipartFile image;
+	/** 先にアップロードした画像のキー */
+	private String imageKey;
 	/** 性別 */
 	@NotNull(message = "性別を選択してください")
 	private String gender;
@@ -57,6 +59,14 @@ public class NewEmployeeForm {
 		this.name = name;
 	}
 
+	public String getImageKey() {
+		return imageKey;
+	}
+
+	public void setImageKey(String imageKey) {
+		this.imageKey = imageKey;
+	}
+
 	public MultipartFile getImage() {
 		return image;
 	}
@@ -1,8 +1,10 @@
 package jp.co.sample.emp_management.repository;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -80,4 +82,44 @@ public class AdministratorRepository {
 		return administratorList.get(0);
 	}
 
+	/**
+	 * パスワードのハッシュ値を更新します.
+	 * 
+	 * @param id ID
+	 * @param password ハッシュ化したパスワード
+	 */
+	public void updatePassword(Integer id, String password) {
+		String sql = "update administrators set password=:password where id=:id";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("id", id).addValue("password", password);
+		template.update(sql, param);
+	}
+
+	/**
+	 * メールアドレスが登録済みかどうかを確認します.
+	 * 
+	 * @param mailAddress メールアドレス
+	 * @return 登録済みであればtrue
+	 */
+	public boolean existsByMailAddress(String mailAddress) {
+		String sql = "select exists(select 1 from administrators where mail_address=:mailAddress)";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("mailAddress", mailAddress);
+		return template.queryForObject(sql, param, Boolean.class);
+	}
+
+	/**
+	 * 登録されているすべてのメールアドレスを1件ずつ処理します.
+	 * 
+	 * @param action メールアドレスを受け取る処理
+	 * @return 処理した件数
+	 */
+	public int forEachMailAddress(Consumer<String> action) {
+		String sql = "select mail_address from administrators";
+		int[] count = { 0 };
+		template.query(sql, (RowCallbackHandler) rs -> {
+			action.accept(rs.getString("mail_address"));
+			count[0]++;
+		});
+		return count[0];
+	}
+
 }
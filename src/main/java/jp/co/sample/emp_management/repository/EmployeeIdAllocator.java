@@ -0,0 +1,61 @@
+package jp.co.sample.emp_management.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 従業員IDを採番するクラス.
+ * employees_id_seqシーケンスの1回のnextvalで、シーケンスの増分(INCREMENT BY)の数だけIDをまとめて確保し、
+ * 確保した範囲を使い切るまではデータベースに問い合わせずにIDを払い出します(hi/lo方式)。
+ * シーケンスが範囲の重複を防ぐため、複数のインスタンスから同時に採番しても衝突しません。
+ * 使われずに終わった範囲の分だけIDは欠番になります。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class EmployeeIdAllocator {
+	/** 採番に使うシーケンス名 */
+	private static final String SEQUENCE_NAME = "employees_id_seq";
+
+	@Autowired
+	private NamedParameterJdbcTemplate template;
+
+	/** 1回のnextvalで確保するIDの数. 未取得の場合は0 */
+	private int blockSize;
+	/** 次に払い出すID */
+	private long nextId;
+	/** 確保済みの範囲の最後のID */
+	private long lastId = -1;
+
+	/**
+	 * 新しい従業員IDを払い出します.
+	 *
+	 * @return 従業員ID
+	 */
+	public synchronized int nextId() {
+		if (nextId > lastId) {
+			allocateBlock();
+		}
+		return Math.toIntExact(nextId++);
+	}
+
+	/**
+	 * シーケンスから次の範囲を確保します.
+	 */
+	private void allocateBlock() {
+		if (blockSize == 0) {
+			String sql = "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = :sequenceName;";
+			SqlParameterSource param = new MapSqlParameterSource().addValue("sequenceName", SEQUENCE_NAME);
+			blockSize = template.queryForObject(sql, param, Integer.class);
+		}
+		String sql = "SELECT nextval(:sequenceName);";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("sequenceName", SEQUENCE_NAME);
+		long start = template.queryForObject(sql, param, Long.class);
+		nextId = start;
+		lastId = start + blockSize - 1;
+	}
+}
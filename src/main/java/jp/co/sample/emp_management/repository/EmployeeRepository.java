@@ -1,16 +1,31 @@
 package jp.co.sample.emp_management.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
 import org.springframework.stereotype.Repository;
 
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeColumn;
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
 
 /**
  * employeesテーブルを操作するリポジトリ.
@@ -21,6 +36,17 @@ import jp.co.sample.emp_management.domain.Employee;
 @Repository
 public class EmployeeRepository {
 
+	/**
+	 * 従業員を登録するSQL.
+	 */
+	private static final String INSERT_SQL = "INSERT INTO employees(id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count) "
+			+ "VALUES (:id,:name,:image,:gender,:hireDate,:mailAddress,:zipCode,:address,:telephone,:salary,:characteristics,:dependentsCount);";
+
+	/**
+	 * 従業員の扶養人数を変更するSQL.
+	 */
+	private static final String UPDATE_DEPENDENTS_COUNT_SQL = "UPDATE employees SET dependents_count=:dependentsCount WHERE id=:id";
+
 	/**
 	 * Employeeオブジェクトを生成するローマッパー.
 	 */
@@ -30,7 +56,7 @@ public class EmployeeRepository {
 		employee.setName(rs.getString("name"));
 		employee.setImage(rs.getString("image"));
 		employee.setGender(rs.getString("gender"));
-		employee.setHireDate(rs.getDate("hire_date"));
+		employee.setHireDate(rs.getTimestamp("hire_date"));
 		employee.setMailAddress(rs.getString("mail_address"));
 		employee.setZipCode(rs.getString("zip_code"));
 		employee.setAddress(rs.getString("address"));
@@ -41,9 +67,45 @@ public class EmployeeRepository {
 		return employee;
 	};
 
+	/**
+	 * IDと名前だけを設定したEmployeeオブジェクトを生成するローマッパー.
+	 */
+	private static final RowMapper<Employee> EMPLOYEE_NAME_ROW_MAPPER = (rs, i) -> {
+		Employee employee = new Employee();
+		employee.setId(rs.getInt("id"));
+		employee.setName(rs.getString("name"));
+		return employee;
+	};
+
+	/**
+	 * ID、名前、入社日だけを設定したEmployeeオブジェクトを生成するローマッパー.
+	 */
+	private static final RowMapper<Employee> EMPLOYEE_SEARCH_KEY_ROW_MAPPER = (rs, i) -> {
+		Employee employee = new Employee();
+		employee.setId(rs.getInt("id"));
+		employee.setName(rs.getString("name"));
+		employee.setHireDate(rs.getTimestamp("hire_date"));
+		return employee;
+	};
+
+	/**
+	 * 一覧表示用のEmployeeSummaryオブジェクトを生成するローマッパー.
+	 */
+	private static final RowMapper<EmployeeSummary> EMPLOYEE_SUMMARY_ROW_MAPPER = (rs, i) -> {
+		EmployeeSummary employee = new EmployeeSummary();
+		employee.setId(rs.getInt("id"));
+		employee.setName(rs.getString("name"));
+		employee.setHireDate(rs.getTimestamp("hire_date"));
+		employee.setDependentsCount(rs.getInt("dependents_count"));
+		return employee;
+	};
+
 	@Autowired
 	private NamedParameterJdbcTemplate template;
 
+	@Autowired
+	private EmployeeIdAllocator employeeIdAllocator;
+
 	/**
 	 * 従業員一覧情報を入社日順で取得します.
 	 * 
@@ -58,19 +120,102 @@ public class EmployeeRepository {
 		return developmentList;
 	}
 
+	/**
+	 * 全従業員のIDと名前を取得します.
+	 *
+	 * @return IDと名前だけを設定した従業員情報のリスト
+	 */
+	public List<Employee> findAllNames() {
+		String sql = "SELECT id,name FROM employees";
+		return template.query(sql, EMPLOYEE_NAME_ROW_MAPPER);
+	}
+
+	/**
+	 * 全従業員の画像を重複なく取得します.
+	 *
+	 * @return 画像のキーまたはファイル名のリスト
+	 */
+	public List<String> findAllImages() {
+		String sql = "SELECT DISTINCT image FROM employees";
+		return template.queryForList(sql, new MapSqlParameterSource(), String.class);
+	}
+
+	/**
+	 * 名前検索の索引作成用に、全従業員のID、名前、入社日を取得します.
+	 *
+	 * @return ID、名前、入社日だけを設定した従業員情報のリスト
+	 */
+	public List<Employee> findAllSearchKeys() {
+		String sql = "SELECT id,name,hire_date FROM employees";
+		return template.query(sql, EMPLOYEE_SEARCH_KEY_ROW_MAPPER);
+	}
+
+	/**
+	 * 全従業員の指定した列を、1行ずつハンドラーに渡します.
+	 * 結果はリストに保持せず、前方向のみのカーソルでfetchSize件ずつ取得するため、件数によらず一定のメモリで処理できます。
+	 * PostgreSQLでカーソルを使うため、トランザクション内で呼び出してください。
+	 *
+	 * @param columnList 取得する列
+	 * @param fetchSize 1回の通信で取得する行数
+	 * @param handler 1行ごとに呼び出されるハンドラー
+	 */
+	public void streamAll(List<EmployeeColumn> columnList, int fetchSize, RowCallbackHandler handler) {
+		String columns = columnList.stream().map(EmployeeColumn::getColumnName).collect(Collectors.joining(","));
+		String sql = "SELECT " + columns + " FROM employees ORDER BY id";
+		template.getJdbcOperations().query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			return statement;
+		}, handler);
+	}
+
 	/**
 	 * 指定したlimit、offsetで従業員情報を取得します.
 	 * 取得順は入社日の降順(重複の場合はIDの降順)です。
 	 *
 	 * @param limit 取得件数
 	 * @param offset オフセット
-	 * @return 従業員情報のリスト
+	 * @return 一覧表示用の従業員情報のリスト
 	 */
-	public List<Employee> findAll(int limit, int offset) {
-		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count "
+	public List<EmployeeSummary> findAll(int limit, int offset) {
+		String sql = "SELECT id,name,hire_date,dependents_count "
 				+ "FROM employees ORDER BY hire_date DESC, id DESC LIMIT :limit OFFSET :offset";
 		SqlParameterSource params = new MapSqlParameterSource().addValue("limit", limit).addValue("offset", offset);
-		return template.query(sql, params, EMPLOYEE_ROW_MAPPER);
+		return template.query(sql, params, EMPLOYEE_SUMMARY_ROW_MAPPER);
+	}
+
+	/**
+	 * カーソルの位置より後ろの従業員情報を取得します.
+	 * 取得順は入社日の降順(重複の場合はIDの降順)です。
+	 * OFFSETを使わないため、後ろのページでも先頭のページと同じコストで取得できます。
+	 *
+	 * @param cursor 直前のページの最後の従業員の位置
+	 * @param limit 取得件数
+	 * @return 一覧表示用の従業員情報のリスト
+	 */
+	public List<EmployeeSummary> findAllAfter(EmployeeCursor cursor, int limit) {
+		String sql = "SELECT id,name,hire_date,dependents_count "
+				+ "FROM employees WHERE (hire_date, id) < (:hireDate, :id) ORDER BY hire_date DESC, id DESC LIMIT :limit";
+		SqlParameterSource params = cursorParams(cursor).addValue("limit", limit);
+		return template.query(sql, params, EMPLOYEE_SUMMARY_ROW_MAPPER);
+	}
+
+	/**
+	 * カーソルの位置より前の従業員情報を取得します.
+	 * 取得順は入社日の降順(重複の場合はIDの降順)です。
+	 *
+	 * @param cursor 直後のページの最初の従業員の位置
+	 * @param limit 取得件数
+	 * @return 一覧表示用の従業員情報のリスト
+	 */
+	public List<EmployeeSummary> findAllBefore(EmployeeCursor cursor, int limit) {
+		String sql = "SELECT id,name,hire_date,dependents_count "
+				+ "FROM employees WHERE (hire_date, id) > (:hireDate, :id) ORDER BY hire_date, id LIMIT :limit";
+		SqlParameterSource params = cursorParams(cursor).addValue("limit", limit);
+		List<EmployeeSummary> employeeList = template.query(sql, params, EMPLOYEE_SUMMARY_ROW_MAPPER);
+		Collections.reverse(employeeList);
+		return employeeList;
 	}
 
 	/**
@@ -106,8 +251,18 @@ public class EmployeeRepository {
 	public void update(Employee employee) {
 		SqlParameterSource param = new BeanPropertySqlParameterSource(employee);
 
-		String updateSql = "UPDATE employees SET dependents_count=:dependentsCount WHERE id=:id";
-		template.update(updateSql, param);
+		template.update(UPDATE_DEPENDENTS_COUNT_SQL, param);
+	}
+
+	/**
+	 * 複数の従業員の扶養人数をバッチ更新でまとめて変更します.
+	 *
+	 * @param employeeList IDと扶養人数を設定したEmployeeオブジェクトのリスト
+	 * @return 従業員ごとの更新件数 該当するIDがない場合は0
+	 */
+	public int[] updateDependentsCounts(List<Employee> employeeList) {
+		return template.batchUpdate(UPDATE_DEPENDENTS_COUNT_SQL,
+				SqlParameterSourceUtils.createBatch(employeeList.toArray()));
 	}
 
 	/**
@@ -124,19 +279,90 @@ public class EmployeeRepository {
 	}
 
 	/**
-	 * 名前で従業員情報を曖昧検索します.
+	 * 名前で従業員情報を曖昧検索し、1ページ分の結果とヒット件数をまとめて取得します.
+	 * 件数はウィンドウ関数で同じクエリから取得するため、1回の問い合わせで済みます。
 	 *
 	 * @param name 名前
 	 * @param limit 取得件数
 	 * @param offset オフセット
-	 * @return 見つかった従業員情報のリスト. 0人の場合は空のリストになります。
+	 * @return 見つかった一覧表示用の従業員情報のページ
 	 */
-	public List<Employee> searchByName(String name, int limit, int offset) {
-		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count "
+	public Page<EmployeeSummary> searchPageByName(String name, int limit, int offset) {
+		String sql = "SELECT id,name,hire_date,dependents_count,"
+				+ "COUNT(*) OVER() AS total_count "
 				+ "FROM employees WHERE name LIKE :name ORDER BY hire_date DESC, id DESC LIMIT :limit OFFSET :offset;";
 		SqlParameterSource params = new MapSqlParameterSource()
 				.addValue("name", "%" + name + "%").addValue("limit", limit).addValue("offset", offset);
-		return template.query(sql, params, EMPLOYEE_ROW_MAPPER);
+		return template.query(sql, params, pageExtractor(EMPLOYEE_SUMMARY_ROW_MAPPER, limit));
+	}
+
+	/**
+	 * 名前で従業員情報を曖昧検索し、カーソルの位置より後ろの結果とヒット件数を取得します.
+	 *
+	 * @param name 名前
+	 * @param cursor 直前のページの最後の従業員の位置
+	 * @param limit 取得件数
+	 * @return 見つかった一覧表示用の従業員情報のページ
+	 */
+	public Page<EmployeeSummary> searchByNameAfter(String name, EmployeeCursor cursor, int limit) {
+		String sql = "SELECT id,name,hire_date,dependents_count,"
+				+ "(SELECT COUNT(*) FROM employees WHERE name LIKE :name) AS total_count "
+				+ "FROM employees WHERE name LIKE :name AND (hire_date, id) < (:hireDate, :id) "
+				+ "ORDER BY hire_date DESC, id DESC LIMIT :limit;";
+		SqlParameterSource params = cursorParams(cursor)
+				.addValue("name", "%" + name + "%").addValue("limit", limit);
+		return template.query(sql, params, pageExtractor(EMPLOYEE_SUMMARY_ROW_MAPPER, limit));
+	}
+
+	/**
+	 * 名前で従業員情報を曖昧検索し、カーソルの位置より前の結果とヒット件数を取得します.
+	 *
+	 * @param name 名前
+	 * @param cursor 直後のページの最初の従業員の位置
+	 * @param limit 取得件数
+	 * @return 見つかった一覧表示用の従業員情報のページ
+	 */
+	public Page<EmployeeSummary> searchByNameBefore(String name, EmployeeCursor cursor, int limit) {
+		String sql = "SELECT id,name,hire_date,dependents_count,"
+				+ "(SELECT COUNT(*) FROM employees WHERE name LIKE :name) AS total_count "
+				+ "FROM employees WHERE name LIKE :name AND (hire_date, id) > (:hireDate, :id) "
+				+ "ORDER BY hire_date, id LIMIT :limit;";
+		SqlParameterSource params = cursorParams(cursor)
+				.addValue("name", "%" + name + "%").addValue("limit", limit);
+		Page<EmployeeSummary> page = template.query(sql, params, pageExtractor(EMPLOYEE_SUMMARY_ROW_MAPPER, limit));
+		Collections.reverse(page.getContent());
+		return page;
+	}
+
+	/**
+	 * 指定したIDの従業員情報を取得します.
+	 * 取得順は入社日の降順(重複の場合はIDの降順)です。
+	 *
+	 * @param idList IDのリスト
+	 * @return 一覧表示用の従業員情報のリスト 存在しないIDは無視します
+	 */
+	public List<EmployeeSummary> findByIds(List<Integer> idList) {
+		if (idList.isEmpty()) {
+			return new ArrayList<>();
+		}
+		String sql = "SELECT id,name,hire_date,dependents_count "
+				+ "FROM employees WHERE id IN (:idList) ORDER BY hire_date DESC, id DESC";
+		SqlParameterSource params = new MapSqlParameterSource().addValue("idList", idList);
+		return template.query(sql, params, EMPLOYEE_SUMMARY_ROW_MAPPER);
+	}
+
+	/**
+	 * 指定した文字列で始まる従業員名を名前順に取得します.
+	 *
+	 * @param prefix 名前の先頭部分
+	 * @param limit 取得件数
+	 * @return 従業員名のリスト(重複なし)
+	 */
+	public List<String> findNamesByPrefix(String prefix, int limit) {
+		String sql = "SELECT DISTINCT name FROM employees WHERE name LIKE :prefix ORDER BY name LIMIT :limit;";
+		SqlParameterSource params = new MapSqlParameterSource()
+				.addValue("prefix", escapeLike(prefix) + "%").addValue("limit", limit);
+		return template.queryForList(sql, params, String.class);
 	}
 
 	/**
@@ -151,18 +377,99 @@ public class EmployeeRepository {
 		return template.queryForObject(sql, param, Integer.class);
 	}
 
+	/**
+	 * メールアドレスが登録済みかどうかを確認します.
+	 *
+	 * @param mailAddress メールアドレス
+	 * @return 登録済みであればtrue
+	 */
+	public boolean existsByMailAddress(String mailAddress) {
+		String sql = "SELECT EXISTS(SELECT 1 FROM employees WHERE mail_address=:mailAddress)";
+		SqlParameterSource params = new MapSqlParameterSource().addValue("mailAddress", mailAddress);
+		return template.queryForObject(sql, params, Boolean.class);
+	}
+
+	/**
+	 * 登録されているすべてのメールアドレスを1件ずつ処理します.
+	 *
+	 * @param action メールアドレスを受け取る処理
+	 * @return 処理した件数
+	 */
+	public int forEachMailAddress(Consumer<String> action) {
+		String sql = "SELECT mail_address FROM employees";
+		int[] count = { 0 };
+		template.query(sql, (RowCallbackHandler) rs -> {
+			action.accept(rs.getString("mail_address"));
+			count[0]++;
+		});
+		return count[0];
+	}
+
 	/**
 	 * 従業員をデータベースに登録します.
+	 * IDは{@link EmployeeIdAllocator}で採番し、引数のオブジェクトに設定します。
 	 *
 	 * @param employee 登録するEmployeeオブジェクト
 	 */
 	public void insert(Employee employee) {
-		String sql = "INSERT INTO employees(id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count) "
-				+ "VALUES ((SELECT MAX(id)+1 FROM employees),"
-				+ ":name,:image,:gender,:hireDate,:mailAddress,:zipCode,:address,:telephone,:salary,:characteristics,:dependentsCount) "
-				+ "RETURNING id;";
+		employee.setId(employeeIdAllocator.nextId());
 		SqlParameterSource params = new BeanPropertySqlParameterSource(employee);
-		Integer id = template.queryForObject(sql, params, Integer.class);
-		employee.setId(id);
+		template.update(INSERT_SQL, params);
+	}
+
+	/**
+	 * 複数の従業員をバッチ更新でまとめてデータベースに登録します.
+	 * IDは{@link EmployeeIdAllocator}で採番し、引数のオブジェクトに設定します。
+	 *
+	 * @param employeeList 登録するEmployeeオブジェクトのリスト
+	 */
+	public void insertAll(List<Employee> employeeList) {
+		for (Employee employee : employeeList) {
+			employee.setId(employeeIdAllocator.nextId());
+		}
+		template.batchUpdate(INSERT_SQL, SqlParameterSourceUtils.createBatch(employeeList.toArray()));
+	}
+
+	/**
+	 * total_count列に全体の件数を含む結果をページに変換するエクストラクターを作成します.
+	 *
+	 * @param rowMapper 1行分のデータを変換するローマッパー
+	 * @param pageSize 1ページあたりの件数
+	 * @return ページを生成するエクストラクター 結果が0行の場合の件数は0になります
+	 */
+	private <T> ResultSetExtractor<Page<T>> pageExtractor(RowMapper<T> rowMapper, int pageSize) {
+		return rs -> {
+			List<T> content = new ArrayList<>();
+			int totalCount = 0;
+			while (rs.next()) {
+				content.add(rowMapper.mapRow(rs, content.size()));
+				totalCount = rs.getInt("total_count");
+			}
+			return new Page<>(content, totalCount, pageSize);
+		};
+	}
+
+	/**
+	 * カーソルの位置をSQLのパラメータにします.
+	 *
+	 * @param cursor カーソル
+	 * @return 入社日とIDを設定したパラメータ
+	 */
+	private MapSqlParameterSource cursorParams(EmployeeCursor cursor) {
+		// 入社日はtimestamp列のため、ミリ秒未満まで含めて比較する
+		Date hireDate = cursor.getHireDate();
+		return new MapSqlParameterSource()
+				.addValue("hireDate", hireDate instanceof Timestamp ? hireDate : new Timestamp(hireDate.getTime()))
+				.addValue("id", cursor.getId());
+	}
+
+	/**
+	 * LIKEのパターンとして特別な意味を持つ文字をエスケープします.
+	 *
+	 * @param value エスケープする文字列
+	 * @return エスケープした文字列
+	 */
+	private String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
 	}
 }
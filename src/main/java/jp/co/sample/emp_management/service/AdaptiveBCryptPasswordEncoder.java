@@ -0,0 +1,113 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 起動したマシンの速さに合わせてコストを決めるBCryptのエンコーダー.
+ * 起動時に低いコストで実際にハッシュ化して時間を測り、照合1回が目標の時間に最も近くなるコストを選びます。
+ * BCryptはコストが1増えるごとに時間が2倍になるため、測った時間から各コストの時間を求められます。
+ * 照合にはハッシュ値に含まれるコストを使うので、コストが変わっても登録済みのパスワードで照合できます。
+ * コストが現在より低いハッシュ値は{@link #upgradeEncoding(String)}で判定し、ログイン時にハッシュ化し直します。
+ * 現在より高いコストのハッシュ値はそのまま使うため、測ったコストがインスタンスごとに違っても
+ * ハッシュ化し直しを繰り返したり、コストを下げたりしません。
+ *
+ * @author takaram
+ *
+ */
+public class AdaptiveBCryptPasswordEncoder implements PasswordEncoder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBCryptPasswordEncoder.class);
+
+	/** BCryptのハッシュ値からコストを取り出す正規表現 */
+	private static final Pattern COST_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+	/** 時間を測るときのコスト */
+	private static final int CALIBRATION_STRENGTH = 8;
+	/** 時間を測る回数. 最も速かった回の時間を使う */
+	private static final int CALIBRATION_ROUNDS = 3;
+
+	/** コスト */
+	private final int strength;
+	/** ハッシュ化と照合を行うエンコーダー */
+	private final BCryptPasswordEncoder delegate;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param strength コスト
+	 */
+	public AdaptiveBCryptPasswordEncoder(int strength) {
+		this.strength = strength;
+		this.delegate = new BCryptPasswordEncoder(strength);
+	}
+
+	/**
+	 * 照合1回が目標の時間に最も近くなるコストのエンコーダーを作成します.
+	 *
+	 * @param targetMillis 照合1回の目標の時間(ミリ秒)
+	 * @param minStrength 最小のコスト
+	 * @param maxStrength 最大のコスト
+	 * @return エンコーダー
+	 */
+	public static AdaptiveBCryptPasswordEncoder calibrate(long targetMillis, int minStrength, int maxStrength) {
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+		long bestNanos = Long.MAX_VALUE;
+		// 1回目はクラスの読み込みやJITの影響を受けるため、複数回測って最も速い回を使う
+		for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+			long start = System.nanoTime();
+			encoder.encode("calibration");
+			bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+		}
+		int strength = chooseStrength(bestNanos, targetMillis, minStrength, maxStrength);
+		LOGGER.info("BCryptのコストを{}にしました (コスト{}で{}ms, 目標{}ms)", strength, CALIBRATION_STRENGTH,
+				bestNanos / 1_000_000.0, targetMillis);
+		return new AdaptiveBCryptPasswordEncoder(strength);
+	}
+
+	/**
+	 * 測った時間から、目標の時間に最も近くなるコストを求めます.
+	 *
+	 * @param calibrationNanos {@value #CALIBRATION_STRENGTH}のコストでハッシュ化にかかった時間(ナノ秒)
+	 * @param targetMillis 照合1回の目標の時間(ミリ秒)
+	 * @param minStrength 最小のコスト
+	 * @param maxStrength 最大のコスト
+	 * @return コスト
+	 */
+	static int chooseStrength(long calibrationNanos, long targetMillis, int minStrength, int maxStrength) {
+		double ratio = targetMillis * 1_000_000.0 / Math.max(1, calibrationNanos);
+		int strength = CALIBRATION_STRENGTH + (int) Math.round(Math.log(ratio) / Math.log(2));
+		return Math.max(minStrength, Math.min(maxStrength, strength));
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return delegate.encode(rawPassword);
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return delegate.matches(rawPassword, encodedPassword);
+	}
+
+	/**
+	 * ハッシュ化し直す必要があるかどうかを判定します.
+	 *
+	 * @param encodedPassword 登録済みのハッシュ値
+	 * @return コストが現在のコストより低い場合、またはBCryptのハッシュ値でない場合はtrue
+	 */
+	public boolean upgradeEncoding(String encodedPassword) {
+		if (encodedPassword == null) {
+			return false;
+		}
+		Matcher matcher = COST_PATTERN.matcher(encodedPassword);
+		return !matcher.find() || Integer.parseInt(matcher.group(1)) < strength;
+	}
+
+	public int getStrength() {
+		return strength;
+	}
+}
@@ -0,0 +1,39 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.repository.AdministratorRepository;
+
+/**
+ * 登録済みの管理者のメールアドレスを{@link BloomFilter}で管理するクラス.
+ * 管理者の登録時に追加します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class AdministratorMailAddressFilter extends MailAddressFilter {
+	@Autowired
+	private AdministratorRepository administratorRepository;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param expectedInsertions 想定する登録件数
+	 * @param falsePositiveProbability 誤判定率
+	 */
+	public AdministratorMailAddressFilter(
+			@Value("${employee.mail-address-filter.expected-insertions:100000}") long expectedInsertions,
+			@Value("${employee.mail-address-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+		super(expectedInsertions, falsePositiveProbability);
+	}
+
+	@Override
+	protected int forEachMailAddress(Consumer<String> action) {
+		return administratorRepository.forEachMailAddress(action);
+	}
+}
@@ -1,9 +1,11 @@
 package jp.co.sample.emp_management.service;
 
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import jp.co.sample.emp_management.domain.Administrator;
 import jp.co.sample.emp_management.repository.AdministratorRepository;
@@ -11,50 +13,116 @@ import jp.co.sample.emp_management.repository.AdministratorRepository;
 /**
  * 管理者情報を操作するサービス.
  * 
+ * パスワードのハッシュ化と照合(BCrypt)には時間がかかるため、その間データベース接続を保持しないよう
+ * クラス全体をトランザクションにせず、接続はSQLを実行する間だけ取得します。
+ * ハッシュ化と照合は{@link PasswordHashingExecutor}の上限のあるスレッドで行い、
+ * 失敗が続いたメールアドレスのログインは{@link LoginAttemptThrottle}で照合する前に拒否します。
+ * 登録済みのハッシュ値のコストが現在のコストと異なる場合は、ログインに成功したときにハッシュ化し直します。
+ * 
  * @author igamasayuki
  *
  */
 @Service
-@Transactional
 public class AdministratorService {
-	
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdministratorService.class);
+
 	@Autowired
 	private AdministratorRepository administratorRepository;
 
 	@Autowired
-	private PasswordEncoder passwordEncoder;
+	private AdaptiveBCryptPasswordEncoder passwordEncoder;
+
+	@Autowired
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	@Autowired
+	private LoginAttemptThrottle loginAttemptThrottle;
+
+	@Autowired
+	private AdministratorMailAddressFilter administratorMailAddressFilter;
 
 	/**
 	 * 管理者情報を登録します.
+	 * パスワードはハッシュ化してから、1回のINSERTで登録します。
 	 * 
 	 * @param administrator　管理者情報
+	 * @throws java.util.concurrent.RejectedExecutionException パスワードの処理が混み合っている場合
+	 * @throws org.springframework.dao.DuplicateKeyException メールアドレスが既に登録されている場合
 	 */
 	public void insert(Administrator administrator) {
-		String encodedPassword = passwordEncoder.encode(administrator.getPassword());
+		String password = administrator.getPassword();
+		String encodedPassword = passwordHashingExecutor.execute(() -> passwordEncoder.encode(password));
 		administrator.setPassword(encodedPassword);
 		administratorRepository.insert(administrator);
+		administratorMailAddressFilter.add(administrator.getMailAddress());
 	}
 	
 	/**
 	 * ログインをします.
+	 * 管理者情報の取得が終わってから(接続を返却してから)パスワードを照合します。
+	 * 同じ接続元から同じメールアドレスへの失敗が続いている場合は、データベースにも問い合わせずに拒否します。
 	 * @param mailAddress メールアドレス
 	 * @param password パスワード
+	 * @param clientAddress 接続元のアドレス
 	 * @return 管理者情報　存在しない場合はnullが返ります
+	 * @throws LoginThrottledException 失敗が続いているためログインを受け付けない場合
+	 * @throws java.util.concurrent.RejectedExecutionException パスワードの処理が混み合っている場合
 	 */
-	public Administrator login(String mailAddress, String passward) {
-		Administrator administrator = administratorRepository.findByMailAddress(mailAddress);
-		if (administrator == null || !passwordEncoder.matches(passward, administrator.getPassword())) {
+	public Administrator login(String mailAddress, String passward, String clientAddress) {
+		if (!loginAttemptThrottle.tryAcquire(clientAddress, mailAddress)) {
+			throw new LoginThrottledException("ログインの失敗が続いたため、しばらくログインできません。",
+					loginAttemptThrottle.getLockSeconds());
+		}
+		Administrator administrator;
+		boolean matched;
+		try {
+			administrator = administratorRepository.findByMailAddress(mailAddress);
+			matched = administrator != null && passwordHashingExecutor
+					.execute(() -> passwordEncoder.matches(passward, administrator.getPassword()));
+		} catch (RuntimeException e) {
+			// 照合できなかった試行は失敗として数えない
+			loginAttemptThrottle.release(clientAddress, mailAddress);
+			throw e;
+		}
+		if (!matched) {
 			return null;
 		}
+		loginAttemptThrottle.recordSuccess(clientAddress, mailAddress);
+		if (passwordEncoder.upgradeEncoding(administrator.getPassword())) {
+			rehash(administrator, passward);
+		}
 		return administrator;
 	}
 
+	/**
+	 * パスワードを現在のコストでハッシュ化し直して更新します.
+	 * 混み合っている場合はログインを優先し、次回のログインに持ち越します。
+	 * 
+	 * @param administrator 管理者情報
+	 * @param password パスワード
+	 */
+	private void rehash(Administrator administrator, String password) {
+		String encodedPassword;
+		try {
+			encodedPassword = passwordHashingExecutor.execute(() -> passwordEncoder.encode(password));
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("混み合っているためパスワードをハッシュ化し直しませんでした: id={}", administrator.getId());
+			return;
+		}
+		administratorRepository.updatePassword(administrator.getId(), encodedPassword);
+		administrator.setPassword(encodedPassword);
+	}
+
 	/**
 	 * メールアドレスが既に登録済みかどうか確認します.
+	 * 登録されていないことがフィルターで分かる場合は、データベースに問い合わせません。
 	 * @param mailAddress メールアドレス
 	 * @return 登録済みであればtrue
 	 */
 	public boolean isAlreadyRegistered(String mailAddress) {
-		return administratorRepository.findByMailAddress(mailAddress) != null;
+		if (!administratorMailAddressFilter.mightBeRegistered(mailAddress)) {
+			return false;
+		}
+		return administratorRepository.existsByMailAddress(mailAddress);
 	}
 }
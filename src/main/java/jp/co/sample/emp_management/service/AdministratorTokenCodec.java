@@ -0,0 +1,183 @@
+package jp.co.sample.emp_management.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+/**
+ * ログイン中の管理者を表す署名付きトークンを作成・検証するクラス.
+ * トークンは「鍵ID.管理者ID.有効期限.管理者名.署名」の形式で、管理者名と署名はBase64URLで表します。
+ * 署名はHMAC-SHA256で、検証には鍵だけを使い、データベースやセッションは参照しません。
+ *
+ * 鍵は鍵IDごとに複数持てます。作成には現在の鍵を使い、検証にはトークンの鍵IDの鍵を使うため、
+ * 新しい鍵を追加して現在の鍵に切り替えた後も、古い鍵で作成したトークンを有効期限まで使えます。
+ *
+ * @author takaram
+ *
+ */
+public class AdministratorTokenCodec {
+	private static final String ALGORITHM = "HmacSHA256";
+	/** 鍵の最小のバイト数 */
+	private static final int MIN_KEY_LENGTH = 32;
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	/** 鍵IDごとの鍵 */
+	private final Map<String, SecretKeySpec> keyMap;
+	/** 作成に使う鍵の鍵ID */
+	private final String currentKeyId;
+	/** トークンの有効期間(秒) */
+	private final long ttlSeconds;
+	private final Clock clock;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param keys 鍵の一覧 「鍵ID=Base64で表した鍵」をカンマで区切って並べます
+	 * @param currentKeyId 作成に使う鍵の鍵ID
+	 * @param ttlSeconds トークンの有効期間(秒)
+	 * @param clock 現在時刻の取得元
+	 * @throws IllegalArgumentException 鍵の形式が正しくない場合や、作成に使う鍵がない場合
+	 */
+	public AdministratorTokenCodec(String keys, String currentKeyId, long ttlSeconds, Clock clock) {
+		Map<String, SecretKeySpec> map = new LinkedHashMap<>();
+		for (String entry : keys.split(",")) {
+			String trimmed = entry.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			int separator = trimmed.indexOf('=');
+			if (separator <= 0 || !trimmed.substring(0, separator).matches("[A-Za-z0-9_-]+")) {
+				throw new IllegalArgumentException("鍵の形式が不正です: 鍵ID=Base64で表した鍵 で指定してください");
+			}
+			byte[] secret = Base64.getDecoder().decode(trimmed.substring(separator + 1));
+			if (secret.length < MIN_KEY_LENGTH) {
+				throw new IllegalArgumentException("鍵は" + MIN_KEY_LENGTH + "バイト以上にしてください");
+			}
+			map.put(trimmed.substring(0, separator), new SecretKeySpec(secret, ALGORITHM));
+		}
+		if (!map.containsKey(currentKeyId)) {
+			throw new IllegalArgumentException("作成に使う鍵がありません: " + currentKeyId);
+		}
+		this.keyMap = map;
+		this.currentKeyId = currentKeyId;
+		this.ttlSeconds = ttlSeconds;
+		this.clock = clock;
+	}
+
+	/**
+	 * 現在の鍵でトークンを作成します.
+	 *
+	 * @param administrator 管理者情報 IDと名前を使います
+	 * @return トークン
+	 */
+	public String encode(Administrator administrator) {
+		long expiresAt = clock.instant().getEpochSecond() + ttlSeconds;
+		String payload = currentKeyId + "." + administrator.getId() + "." + expiresAt + "."
+				+ ENCODER.encodeToString(administrator.getName().getBytes(StandardCharsets.UTF_8));
+		return payload + "." + ENCODER.encodeToString(sign(keyMap.get(currentKeyId), payload));
+	}
+
+	/**
+	 * トークンを検証し、管理者情報を取り出します.
+	 *
+	 * @param token トークン
+	 * @return トークンの内容 署名が正しくない場合や有効期限切れの場合はnull
+	 */
+	public Token decode(String token) {
+		if (token == null) {
+			return null;
+		}
+		String[] parts = token.split("\\.", -1);
+		if (parts.length != 5) {
+			return null;
+		}
+		SecretKeySpec key = keyMap.get(parts[0]);
+		if (key == null) {
+			return null;
+		}
+		try {
+			String payload = token.substring(0, token.lastIndexOf('.'));
+			if (!MessageDigest.isEqual(sign(key, payload), DECODER.decode(parts[4]))) {
+				return null;
+			}
+			long expiresAt = Long.parseLong(parts[2]);
+			if (expiresAt <= clock.instant().getEpochSecond()) {
+				return null;
+			}
+			Administrator administrator = new Administrator();
+			administrator.setId(Integer.valueOf(parts[1]));
+			administrator.setName(new String(DECODER.decode(parts[3]), StandardCharsets.UTF_8));
+			return new Token(administrator, parts[0], expiresAt);
+		} catch (IllegalArgumentException e) {
+			// Base64や数値として読めない場合
+			return null;
+		}
+	}
+
+	/**
+	 * トークンを作り直すべきかどうかを判定します.
+	 * 現在の鍵で作成されていない場合や、有効期間の半分を過ぎた場合に作り直します。
+	 *
+	 * @param token 検証済みのトークン
+	 * @return 作り直すべき場合はtrue
+	 */
+	public boolean needsRenewal(Token token) {
+		return !currentKeyId.equals(token.getKeyId())
+				|| token.getExpiresAt() - clock.instant().getEpochSecond() < ttlSeconds / 2;
+	}
+
+	public long getTtlSeconds() {
+		return ttlSeconds;
+	}
+
+	private static byte[] sign(SecretKeySpec key, String payload) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 検証済みのトークンの内容.
+	 */
+	public static class Token {
+		/** 管理者情報(IDと名前のみ) */
+		private final Administrator administrator;
+		/** 署名に使われた鍵の鍵ID */
+		private final String keyId;
+		/** 有効期限(エポック秒) */
+		private final long expiresAt;
+
+		private Token(Administrator administrator, String keyId, long expiresAt) {
+			this.administrator = administrator;
+			this.keyId = keyId;
+			this.expiresAt = expiresAt;
+		}
+
+		public Administrator getAdministrator() {
+			return administrator;
+		}
+
+		public String getKeyId() {
+			return keyId;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package jp.co.sample.emp_management.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 文字列のブルームフィルター.
+ * 追加した文字列に対しては必ずtrueを返し、追加していない文字列に対しては設定した確率以下でのみtrueを返します。
+ * ビット列はlongの配列に詰めて持つため、想定件数10万件・誤判定率1%で約120KBです。
+ * 追加と判定は複数のスレッドから同時に呼び出せます。
+ *
+ * @author takaram
+ *
+ */
+public class BloomFilter {
+	/** ビット列 */
+	private final AtomicLongArray bits;
+	/** ビット数 */
+	private final long bitSize;
+	/** 1つの文字列に対して立てるビットの数 */
+	private final int hashCount;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param expectedInsertions 想定する追加件数
+	 * @param falsePositiveProbability 想定件数を追加したときの誤判定率
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+		long n = Math.max(1, expectedInsertions);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.max(1, (m + Long.SIZE - 1) / Long.SIZE);
+		this.bits = new AtomicLongArray(words);
+		this.bitSize = (long) words * Long.SIZE;
+		this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+	}
+
+	/**
+	 * 文字列を追加します.
+	 *
+	 * @param value 文字列
+	 */
+	public void put(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = index(h1 + i * h2);
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+	}
+
+	/**
+	 * 文字列が追加されている可能性があるかどうかを判定します.
+	 *
+	 * @param value 文字列
+	 * @return 追加されている可能性がある場合はtrue falseの場合は追加されていません
+	 */
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = index(h1 + i * h2);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long index(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % bitSize;
+	}
+
+	/**
+	 * 文字列の64ビットのハッシュ値を求めます.
+	 * UTF-8のバイト列にFNV-1aを適用し、上位と下位のビットが偏らないようMurmurHash3の最終処理で混ぜます。
+	 *
+	 * @param value 文字列
+	 * @return ハッシュ値
+	 */
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,132 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSVを1レコードずつ読み込むクラス.
+ * ファイル全体を読み込まずに先頭から順に解析するため、大きなファイルでも一定のメモリで処理できます。
+ * ダブルクォートで囲まれた値の中の区切り文字、改行、2つ続けたダブルクォートに対応します。
+ *
+ * @author takaram
+ *
+ */
+public class CsvReader implements Closeable {
+	/** 先読みした文字がないことを表す値 */
+	private static final int NONE = -2;
+
+	private final Reader reader;
+	/** 先読みした文字 */
+	private int peeked = NONE;
+	/** 次に読む文字の行番号 */
+	private int currentLine = 1;
+	/** 最後に読んだレコードの開始行番号 */
+	private int recordLine;
+	/** 先頭を読んだかどうか */
+	private boolean started;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param reader 読み込み元
+	 */
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * 次のレコードを読み込みます.
+	 *
+	 * @return レコードの値のリスト 終端に達した場合はnull
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		if (!started) {
+			started = true;
+			if (c == '\uFEFF') {
+				c = read();
+			}
+		}
+		if (c == -1) {
+			return null;
+		}
+		recordLine = currentLine;
+
+		List<String> record = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					break;
+				}
+				if (c == '"') {
+					int next = read();
+					if (next == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						c = next;
+						continue;
+					}
+				} else {
+					if (c == '\n') {
+						currentLine++;
+					}
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0 && !wasQuoted) {
+				quoted = true;
+				wasQuoted = true;
+			} else if (c == ',') {
+				record.add(field.toString());
+				field.setLength(0);
+				wasQuoted = false;
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r') {
+					int next = read();
+					if (next != '\n') {
+						peeked = next;
+					}
+				}
+				if (c != -1) {
+					currentLine++;
+				}
+				break;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+		record.add(field.toString());
+		return record;
+	}
+
+	/**
+	 * 最後に読み込んだレコードの開始行番号を返します.
+	 *
+	 * @return 行番号(1オリジン)
+	 */
+	public int getRecordLine() {
+		return recordLine;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private int read() throws IOException {
+		if (peeked != NONE) {
+			int c = peeked;
+			peeked = NONE;
+			return c;
+		}
+		return reader.read();
+	}
+}
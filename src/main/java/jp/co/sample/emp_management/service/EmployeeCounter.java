@@ -0,0 +1,66 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 登録されている従業員の件数をメモリ上で管理するクラス.
+ * 起動時にデータベースの件数で初期化し、従業員の登録時に加算します。
+ * 他のインスタンスでの登録や集計のずれは、定期的にデータベースの件数と突き合わせて補正します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class EmployeeCounter {
+	/** 未初期化を表す件数 */
+	private static final int UNINITIALIZED = -1;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	private final AtomicInteger count = new AtomicInteger(UNINITIALIZED);
+
+	/**
+	 * 従業員の件数を返します. 初期化前であればデータベースから取得します。
+	 *
+	 * @return 従業員の件数
+	 */
+	public int getCount() {
+		int current = count.get();
+		if (current == UNINITIALIZED) {
+			reconcile();
+			return count.get();
+		}
+		return current;
+	}
+
+	/**
+	 * データベースの件数で補正します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${employee.count.reconcile-interval-millis:300000}",
+			initialDelayString = "${employee.count.reconcile-interval-millis:300000}")
+	public void reconcile() {
+		count.set(employeeRepository.getSize());
+	}
+
+	/**
+	 * 登録された従業員の分だけ件数を加算します.
+	 *
+	 * @param event 従業員登録イベント
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmployeeRegistered(EmployeeRegisteredEvent event) {
+		count.updateAndGet(current -> current == UNINITIALIZED ? current : current + 1);
+	}
+}
@@ -0,0 +1,130 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jp.co.sample.emp_management.domain.EmployeeColumn;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員情報をCSV/TSV形式でエクスポートするサービス.
+ * データベースから取得した行をそのまま出力先に書き込むため、件数によらず一定のメモリで出力できます。
+ *
+ * @author takaram
+ *
+ */
+@Service
+@Transactional(readOnly = true)
+public class EmployeeExportService {
+	/** 出力用バッファのサイズ */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/** 1回の通信でデータベースから取得する行数 */
+	@Value("${employee.export.fetch-size:1000}")
+	private int fetchSize;
+
+	/**
+	 * 全従業員の指定した列を出力します. 1行目は見出し行です。
+	 * CSVでは区切り文字、ダブルクォート、改行を含む値をダブルクォートで囲み、
+	 * TSVではタブと改行を空白に置き換えます。
+	 *
+	 * @param columnList 出力する列
+	 * @param delimiter 区切り文字(','または'\t')
+	 * @param out 出力先 このメソッドでは閉じません
+	 * @throws IOException 出力に失敗した場合
+	 */
+	public void export(List<EmployeeColumn> columnList, char delimiter, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+		String[] values = new String[columnList.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = columnList.get(i).getLabel();
+		}
+		writeLine(writer, values, delimiter);
+
+		try {
+			employeeRepository.streamAll(columnList, fetchSize, rs -> {
+				for (int i = 0; i < values.length; i++) {
+					values[i] = getValue(rs, columnList.get(i));
+				}
+				try {
+					writeLine(writer, values, delimiter);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writer.flush();
+	}
+
+	/**
+	 * 現在の行から列の値を文字列で取得します.
+	 *
+	 * @param rs 結果セット
+	 * @param column 列
+	 * @return 値 NULLの場合は空文字
+	 * @throws SQLException 取得に失敗した場合
+	 */
+	private String getValue(ResultSet rs, EmployeeColumn column) throws SQLException {
+		if (column == EmployeeColumn.HIRE_DATE) {
+			Date hireDate = rs.getDate(column.getColumnName());
+			return hireDate == null ? "" : hireDate.toString();
+		}
+		String value = rs.getString(column.getColumnName());
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * 1行分の値を区切り文字でつないで出力します.
+	 *
+	 * @param writer 出力先
+	 * @param values 値
+	 * @param delimiter 区切り文字
+	 * @throws IOException 出力に失敗した場合
+	 */
+	private void writeLine(Writer writer, String[] values, char delimiter) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(delimiter);
+			}
+			writer.write(escape(values[i], delimiter));
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * 値を区切り文字に応じてエスケープします.
+	 *
+	 * @param value 値
+	 * @param delimiter 区切り文字
+	 * @return エスケープした値
+	 */
+	private String escape(String value, char delimiter) {
+		if (delimiter == '\t') {
+			return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+		}
+		if (value.indexOf(delimiter) < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0
+				&& value.indexOf('\n') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,334 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeColumn;
+import jp.co.sample.emp_management.domain.ImportResult;
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
+import jp.co.sample.emp_management.form.NewEmployeeForm;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * CSVファイルから従業員情報を一括登録するサービス.
+ * ファイルは1行ずつ読み込んで{@link NewEmployeeForm}と同じ規則で検証し、
+ * 正しい行をバッチサイズごとにまとめてバッチ更新で登録します。
+ * 見出し行には列名({@link EmployeeColumn#getColumnName()})か表示名のどちらでも使えるため、
+ * エクスポートしたファイルをそのまま取り込めます。ID列は無視し、新しいIDを採番します。
+ * ファイルの大きさの上限はマルチパートの上限とは別に{@code employee.import.max-size}で決めます。
+ *
+ * @author takaram
+ *
+ */
+@Service
+public class EmployeeImportService {
+	/** 登録に必須の列 */
+	private static final EmployeeColumn[] REQUIRED_COLUMNS = { EmployeeColumn.NAME, EmployeeColumn.IMAGE,
+			EmployeeColumn.GENDER, EmployeeColumn.HIRE_DATE, EmployeeColumn.MAIL_ADDRESS, EmployeeColumn.ZIP_CODE,
+			EmployeeColumn.ADDRESS, EmployeeColumn.TELEPHONE, EmployeeColumn.SALARY, EmployeeColumn.CHARACTERISTICS,
+			EmployeeColumn.DEPENDENTS_COUNT };
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	/** 1回のバッチ更新で登録する件数 */
+	@Value("${employee.import.batch-size:500}")
+	private int batchSize;
+
+	/** 受け付けるCSVファイルの最大のバイト数 */
+	@Value("${employee.import.max-size:104857600}")
+	private long maxSize;
+
+	/**
+	 * CSVファイルの従業員情報を登録します.
+	 * 不正な行は登録せずに結果にエラーとして記録し、残りの行の処理を続けます。
+	 * 読み込んだバイト数が上限を超えた場合は、それまでに読み込んだ行だけを登録し、結果にエラーとして記録します。
+	 *
+	 * @param in CSVファイルの内容(UTF-8)
+	 * @return 登録結果
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public ImportResult importCsv(InputStream in) throws IOException {
+		long start = System.nanoTime();
+		ImportResult result = new ImportResult();
+		try (CsvReader reader = new CsvReader(
+				new InputStreamReader(new LimitedInputStream(in, maxSize), StandardCharsets.UTF_8))) {
+			List<String> header = reader.readRecord();
+			Map<EmployeeColumn, Integer> positionMap = header == null ? null : parseHeader(header, result);
+			if (positionMap != null) {
+				List<Employee> batch = new ArrayList<>(batchSize);
+				List<Integer> lineList = new ArrayList<>(batchSize);
+				try {
+					List<String> record;
+					while ((record = reader.readRecord()) != null) {
+						if (record.size() == 1 && record.get(0).isEmpty()) {
+							continue;
+						}
+						result.setTotalCount(result.getTotalCount() + 1);
+						List<String> messageList = new ArrayList<>();
+						Employee employee = toEmployee(record, positionMap, messageList);
+						if (employee == null) {
+							result.addError(reader.getRecordLine(), messageList);
+							continue;
+						}
+						batch.add(employee);
+						lineList.add(reader.getRecordLine());
+						if (batch.size() >= batchSize) {
+							flush(batch, lineList, result);
+						}
+					}
+				} catch (SizeLimitExceededException e) {
+					result.addError(reader.getRecordLine() + 1, Collections.singletonList(e.getMessage()));
+				}
+				flush(batch, lineList, result);
+			}
+		} catch (SizeLimitExceededException e) {
+			result.addError(1, Collections.singletonList(e.getMessage()));
+		}
+		result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+		return result;
+	}
+
+	/**
+	 * 受け付けるCSVファイルの最大のバイト数を返します.
+	 *
+	 * @return 最大のバイト数
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 見出し行から各列の位置を求めます.
+	 *
+	 * @param header 見出し行
+	 * @param result 登録結果 必須の列がない場合はエラーを記録します
+	 * @return 列から位置への対応 必須の列がない場合はnull
+	 */
+	private Map<EmployeeColumn, Integer> parseHeader(List<String> header, ImportResult result) {
+		Map<EmployeeColumn, Integer> positionMap = new EnumMap<>(EmployeeColumn.class);
+		for (int i = 0; i < header.size(); i++) {
+			String name = header.get(i).trim();
+			for (EmployeeColumn column : EmployeeColumn.values()) {
+				if (column.getColumnName().equals(name) || column.getLabel().equals(name)) {
+					positionMap.put(column, i);
+				}
+			}
+		}
+		List<String> messageList = new ArrayList<>();
+		for (EmployeeColumn column : REQUIRED_COLUMNS) {
+			if (!positionMap.containsKey(column)) {
+				messageList.add("見出し行に「" + column.getColumnName() + "」列がありません");
+			}
+		}
+		if (!messageList.isEmpty()) {
+			result.addError(1, messageList);
+			return null;
+		}
+		return positionMap;
+	}
+
+	/**
+	 * 1行分の値を検証し、従業員情報に変換します.
+	 *
+	 * @param record 1行分の値
+	 * @param positionMap 列から位置への対応
+	 * @param messageList 不正な値があった場合のエラーメッセージの格納先
+	 * @return 従業員情報 不正な値がある場合はnull
+	 */
+	private Employee toEmployee(List<String> record, Map<EmployeeColumn, Integer> positionMap,
+			List<String> messageList) {
+		NewEmployeeForm form = new NewEmployeeForm();
+		form.setName(value(record, positionMap, EmployeeColumn.NAME));
+		form.setGender(value(record, positionMap, EmployeeColumn.GENDER));
+		form.setMailAddress(value(record, positionMap, EmployeeColumn.MAIL_ADDRESS));
+		form.setAddress(value(record, positionMap, EmployeeColumn.ADDRESS));
+		form.setTelephone(value(record, positionMap, EmployeeColumn.TELEPHONE));
+		form.setCharacteristics(value(record, positionMap, EmployeeColumn.CHARACTERISTICS));
+
+		String zipCode = value(record, positionMap, EmployeeColumn.ZIP_CODE);
+		int hyphen = zipCode == null ? -1 : zipCode.indexOf('-');
+		if (hyphen >= 0) {
+			form.setzipCode1(zipCode.substring(0, hyphen));
+			form.setzipCode2(zipCode.substring(hyphen + 1));
+		} else {
+			form.setzipCode1(zipCode);
+		}
+
+		String hireDate = value(record, positionMap, EmployeeColumn.HIRE_DATE);
+		if (hireDate != null && !hireDate.isEmpty()) {
+			try {
+				LocalDate date = LocalDate.parse(hireDate.replace('/', '-'));
+				form.setHireDate(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+			} catch (DateTimeParseException e) {
+				messageList.add("入社日はyyyy-MM-dd形式で入力してください");
+			}
+		}
+		form.setSalary(parseInteger(value(record, positionMap, EmployeeColumn.SALARY), "給料", messageList));
+		form.setDependentsCount(
+				parseInteger(value(record, positionMap, EmployeeColumn.DEPENDENTS_COUNT), "扶養人数", messageList));
+
+		for (ConstraintViolation<NewEmployeeForm> violation : validator.validate(form)) {
+			if (!messageList.contains(violation.getMessage())) {
+				messageList.add(violation.getMessage());
+			}
+		}
+		String image = value(record, positionMap, EmployeeColumn.IMAGE);
+		if (image == null || image.isEmpty()) {
+			messageList.add("画像を指定してください");
+		}
+		if (!messageList.isEmpty()) {
+			return null;
+		}
+
+		Employee employee = new Employee();
+		BeanUtils.copyProperties(form, employee);
+		employee.setImage(image);
+		return employee;
+	}
+
+	/**
+	 * 溜まった従業員情報をまとめて登録します.
+	 * バッチ全体の登録に失敗した場合は、エラーになった行を特定するため1件ずつ登録し直します。
+	 *
+	 * @param batch 登録する従業員情報 処理後は空になります
+	 * @param lineList 各従業員情報の行番号 処理後は空になります
+	 * @param result 登録結果
+	 */
+	private void flush(List<Employee> batch, List<Integer> lineList, ImportResult result) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			insertAll(batch);
+			result.setImportedCount(result.getImportedCount() + batch.size());
+		} catch (DataAccessException e) {
+			for (int i = 0; i < batch.size(); i++) {
+				try {
+					insertAll(Collections.singletonList(batch.get(i)));
+					result.setImportedCount(result.getImportedCount() + 1);
+				} catch (DuplicateKeyException ex) {
+					result.addError(lineList.get(i), Collections.singletonList("メールアドレスが既に登録されています"));
+				} catch (DataAccessException ex) {
+					result.addError(lineList.get(i),
+							Collections.singletonList("登録に失敗しました: " + ex.getMostSpecificCause().getMessage()));
+				}
+			}
+		}
+		batch.clear();
+		lineList.clear();
+	}
+
+	/**
+	 * 1つのトランザクションで従業員情報を登録し、コミット後に登録イベントを通知します.
+	 *
+	 * @param employeeList 登録する従業員情報
+	 */
+	private void insertAll(List<Employee> employeeList) {
+		transactionTemplate.execute(status -> {
+			employeeRepository.insertAll(employeeList);
+			for (Employee employee : employeeList) {
+				eventPublisher.publishEvent(new EmployeeRegisteredEvent(employee));
+			}
+			return null;
+		});
+	}
+
+	private String value(List<String> record, Map<EmployeeColumn, Integer> positionMap, EmployeeColumn column) {
+		int position = positionMap.get(column);
+		return position < record.size() ? record.get(position).trim() : null;
+	}
+
+	private Integer parseInteger(String value, String label, List<String> messageList) {
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			messageList.add(label + "は数値で入力してください");
+			return null;
+		}
+	}
+
+	/**
+	 * 読み込めるバイト数に上限を設けた入力ストリーム.
+	 * 上限を超えて読み込もうとした場合は{@link SizeLimitExceededException}を投げます。
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		/** 上限のバイト数 */
+		private final long limit;
+		/** 残りの読み込めるバイト数 */
+		private long remaining;
+
+		private LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+			this.remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, (int) Math.min(len, remaining + 1));
+			if (count > 0) {
+				remaining -= count;
+				if (remaining < 0) {
+					throw new SizeLimitExceededException(
+							"ファイルのサイズが上限(" + limit + "バイト)を超えたため、この行以降は登録していません");
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * CSVファイルのサイズが上限を超えたことを表す例外.
+	 */
+	private static class SizeLimitExceededException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private SizeLimitExceededException(String message) {
+			super(message);
+		}
+	}
+}
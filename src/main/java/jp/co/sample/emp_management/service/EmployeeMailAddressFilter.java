@@ -0,0 +1,51 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 登録済みの従業員のメールアドレスを{@link BloomFilter}で管理するクラス.
+ * 従業員の登録(一括登録を含む)時に追加します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class EmployeeMailAddressFilter extends MailAddressFilter {
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param expectedInsertions 想定する登録件数
+	 * @param falsePositiveProbability 誤判定率
+	 */
+	public EmployeeMailAddressFilter(
+			@Value("${employee.mail-address-filter.expected-insertions:100000}") long expectedInsertions,
+			@Value("${employee.mail-address-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+		super(expectedInsertions, falsePositiveProbability);
+	}
+
+	/**
+	 * 登録された従業員のメールアドレスを追加します.
+	 *
+	 * @param event 従業員登録イベント
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmployeeRegistered(EmployeeRegisteredEvent event) {
+		add(event.getEmployee().getMailAddress());
+	}
+
+	@Override
+	protected int forEachMailAddress(Consumer<String> action) {
+		return employeeRepository.forEachMailAddress(action);
+	}
+}
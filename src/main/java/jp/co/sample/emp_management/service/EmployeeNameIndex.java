@@ -0,0 +1,189 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員名の前方一致検索を行うメモリ上の索引.
+ * 正規化した名前の昇順に並べたスキップリストを探索するため、データベースにアクセスせずに入力補完の候補を返せます。
+ * 追加は1件あたりO(log n)で、CSV一括登録のように大量に追加しても全体をコピーしません。
+ * 起動時にデータベースから構築し、従業員の登録時に追加します。
+ * 他のインスタンスで登録された従業員を取り込むため、定期的にデータベースから作り直します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class EmployeeNameIndex {
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/** 正規化した名前の昇順に並べた索引. 構築前はnull */
+	private volatile NavigableSet<Entry> entries;
+	/** 作り直している途中の索引. 作り直している間の追加はこちらにも反映する */
+	private volatile NavigableSet<Entry> building;
+
+	private final Counter hitCounter;
+	private final Counter missCounter;
+	private final Timer rebuildTimer;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public EmployeeNameIndex(MeterRegistry meterRegistry) {
+		hitCounter = Counter.builder("employee.name.index.lookups").tag("result", "hit")
+				.description("候補が見つかった前方一致検索の回数").register(meterRegistry);
+		missCounter = Counter.builder("employee.name.index.lookups").tag("result", "miss")
+				.description("候補が見つからなかった前方一致検索の回数").register(meterRegistry);
+		rebuildTimer = Timer.builder("employee.name.index.rebuild")
+				.description("索引の構築にかかった時間").register(meterRegistry);
+		Gauge.builder("employee.name.index.size", this, index -> index.size())
+				.description("索引に登録されている従業員数").register(meterRegistry);
+	}
+
+	/**
+	 * データベースの内容から索引を作り直します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${employee.name-index.rebuild-interval-millis:3600000}",
+			initialDelayString = "${employee.name-index.rebuild-interval-millis:3600000}")
+	public synchronized void rebuild() {
+		rebuildTimer.record(() -> {
+			NavigableSet<Entry> newEntries = new ConcurrentSkipListSet<>();
+			building = newEntries;
+			try {
+				for (Employee employee : employeeRepository.findAllNames()) {
+					newEntries.add(new Entry(employee.getId(), employee.getName()));
+				}
+				entries = newEntries;
+			} finally {
+				building = null;
+			}
+		});
+	}
+
+	/**
+	 * 登録された従業員を索引に追加します.
+	 *
+	 * @param event 従業員登録イベント
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmployeeRegistered(EmployeeRegisteredEvent event) {
+		add(event.getEmployee().getId(), event.getEmployee().getName());
+	}
+
+	/**
+	 * 従業員を索引に追加します. 既に登録されている場合は何もしません。
+	 *
+	 * @param id ID
+	 * @param name 従業員名
+	 */
+	public void add(Integer id, String name) {
+		Entry entry = new Entry(id, name);
+		NavigableSet<Entry> current = entries;
+		if (current != null) {
+			current.add(entry);
+		}
+		NavigableSet<Entry> next = building;
+		if (next != null) {
+			next.add(entry);
+		}
+	}
+
+	/**
+	 * 索引が構築済みかどうかを返します.
+	 *
+	 * @return 構築済みであればtrue
+	 */
+	public boolean isReady() {
+		return entries != null;
+	}
+
+	/**
+	 * 索引に登録されている従業員数を返します.
+	 *
+	 * @return 従業員数 構築前は0
+	 */
+	public int size() {
+		NavigableSet<Entry> current = entries;
+		return current == null ? 0 : current.size();
+	}
+
+	/**
+	 * 指定した文字列で始まる従業員名を正規化した名前の順に取得します.
+	 *
+	 * @param prefix 名前の先頭部分
+	 * @param limit 取得件数
+	 * @return 従業員名のリスト(重複なし) 構築前は空のリスト
+	 */
+	public List<String> findNamesByPrefix(String prefix, int limit) {
+		NavigableSet<Entry> current = entries;
+		if (current == null) {
+			return new ArrayList<>();
+		}
+		String key = NameNormalizer.normalize(prefix);
+		Set<String> nameSet = new LinkedHashSet<>();
+		for (Entry entry : current.tailSet(new Entry(Integer.MIN_VALUE, key, null), true)) {
+			if (nameSet.size() >= limit || !entry.key.startsWith(key)) {
+				break;
+			}
+			nameSet.add(entry.name);
+		}
+		if (nameSet.isEmpty()) {
+			missCounter.increment();
+		} else {
+			hitCounter.increment();
+		}
+		return new ArrayList<>(nameSet);
+	}
+
+	/**
+	 * 索引の1件分のデータ.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		/** 正規化した名前 */
+		private final String key;
+		/** ID */
+		private final int id;
+		/** 従業員名 */
+		private final String name;
+
+		private Entry(Integer id, String name) {
+			this(id, NameNormalizer.normalize(name), name);
+		}
+
+		private Entry(Integer id, String key, String name) {
+			this.id = id;
+			this.key = key;
+			this.name = name;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int result = key.compareTo(other.key);
+			return result != 0 ? result : Integer.compare(id, other.id);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package jp.co.sample.emp_management.service;
+
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+
+/**
+ * 名前の部分一致で従業員を検索する検索エンジン.
+ * 結果はいずれも入社日の降順(重複の場合はIDの降順)で、1ページ分の従業員情報とヒット件数を1回の検索で返します。
+ *
+ * @author takaram
+ *
+ */
+public interface EmployeeNameSearcher {
+
+	/**
+	 * 名前の部分一致で従業員を検索します.
+	 *
+	 * @param name 検索する名前
+	 * @param limit 取得件数
+	 * @param offset オフセット
+	 * @return 見つかった従業員情報のページ
+	 */
+	Page<EmployeeSummary> search(String name, int limit, int offset);
+
+	/**
+	 * 名前の部分一致で従業員を検索し、カーソルの位置より後ろの結果を返します.
+	 *
+	 * @param name 検索する名前
+	 * @param cursor 直前のページの最後の従業員の位置
+	 * @param limit 取得件数
+	 * @return 見つかった従業員情報のページ
+	 */
+	Page<EmployeeSummary> searchAfter(String name, EmployeeCursor cursor, int limit);
+
+	/**
+	 * 名前の部分一致で従業員を検索し、カーソルの位置より前の結果を返します.
+	 *
+	 * @param name 検索する名前
+	 * @param cursor 直後のページの最初の従業員の位置
+	 * @param limit 取得件数
+	 * @return 見つかった従業員情報のページ
+	 */
+	Page<EmployeeSummary> searchBefore(String name, EmployeeCursor cursor, int limit);
+}
@@ -1,21 +1,33 @@
 package jp.co.sample.emp_management.service;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.ResourceUtils;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jp.co.sample.emp_management.domain.BatchUpdateResult;
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSearchResult;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
 import jp.co.sample.emp_management.repository.EmployeeRepository;
 
 /**
  * 従業員情報を操作するサービス.
+ * 一覧や検索など読み取り専用のメソッドは、レプリカが設定されている場合はレプリカで実行します。
+ * 従業員詳細は更新直後の内容をキャッシュするため、プライマリから読み込みます。
  * 
  * @author igamasayuki
  *
@@ -24,51 +36,100 @@ import jp.co.sample.emp_management.repository.EmployeeRepository;
 @Transactional
 public class EmployeeService {
 	private static final int EMPLOYEES_PER_PAGE = 10;
+	private static final int NAME_CANDIDATES_LIMIT = 10;
+	/** 従業員詳細のキャッシュ名 */
+	private static final String EMPLOYEE_CACHE = "employee";
 
 	@Autowired
 	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private EmployeeNameIndex employeeNameIndex;
+
+	@Autowired
+	private EmployeeNameSearcher employeeNameSearcher;
+
+	@Autowired
+	private EmployeeCounter employeeCounter;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EmployeeMailAddressFilter employeeMailAddressFilter;
+
+	/** 一括更新で1回のバッチ更新にまとめる件数 */
+	@Value("${employee.batch-update.chunk-size:500}")
+	private int batchUpdateChunkSize;
+
+	/** 1リクエストで行う検索の問い合わせ全体にかける最大の時間(ミリ秒). 秒単位で切り上げてトランザクションのタイムアウトにする */
+	@Value("${employee.query.timeout-millis:5000}")
+	private long queryTimeoutMillis;
 	
 	/**
 	 * 従業員情報を全件取得します.
 	 * 
 	 * @return　従業員情報一覧
 	 */
+	@Transactional(readOnly = true)
 	public List<Employee> showList() {
 		List<Employee> employeeList = employeeRepository.findAll();
 		return employeeList;
 	}
 	
 	/**
-	 * 従業員情報を10件ずつ取得します.
+	 * 従業員情報を10件ずつ、全体の件数とあわせて取得します.
+	 * 件数はメモリ上で管理している値を使うため、データベースへの問い合わせは1ページ分の取得だけです。
 	 * 
 	 * @param page ページ番号 (1オリジン)
-	 * @return 取得した従業員情報のリスト
+	 * @return 取得した従業員情報のページ
 	 */
-	public List<Employee> showList(int page) {
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> showList(int page) {
 		if (page < 1) {
 			throw new IllegalArgumentException("ページ番号は1以上でなければなりません");
 		}
 		int offset = (page - 1) * EMPLOYEES_PER_PAGE;
-		return employeeRepository.findAll(EMPLOYEES_PER_PAGE, offset);
+		List<EmployeeSummary> employeeList = employeeRepository.findAll(EMPLOYEES_PER_PAGE, offset);
+		return new Page<>(employeeList, employeeCounter.getCount(), EMPLOYEES_PER_PAGE);
 	}
 
 	/**
-	 * 従業員リストの最大のページ数を取得します.
-	 * 
-	 * @return 従業員リストの最大のページ数
+	 * カーソルの位置の次のページの従業員情報を10件、全体の件数とあわせて取得します.
+	 *
+	 * @param cursor 現在のページの最後の従業員の位置
+	 * @return 取得した従業員情報のページ
+	 */
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> showListAfter(EmployeeCursor cursor) {
+		List<EmployeeSummary> employeeList = employeeRepository.findAllAfter(cursor, EMPLOYEES_PER_PAGE);
+		return new Page<>(employeeList, employeeCounter.getCount(), EMPLOYEES_PER_PAGE);
+	}
+
+	/**
+	 * カーソルの位置の前のページの従業員情報を10件、全体の件数とあわせて取得します.
+	 *
+	 * @param cursor 現在のページの最初の従業員の位置
+	 * @return 取得した従業員情報のページ
 	 */
-	public int getMaxPageCount() {
-		int size = employeeRepository.getSize();
-		return (size - 1) / EMPLOYEES_PER_PAGE + 1;
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> showListBefore(EmployeeCursor cursor) {
+		List<EmployeeSummary> employeeList = employeeRepository.findAllBefore(cursor, EMPLOYEES_PER_PAGE);
+		return new Page<>(employeeList, employeeCounter.getCount(), EMPLOYEES_PER_PAGE);
 	}
 
 	/**
 	 * 従業員情報を取得します.
+	 * 一度取得した従業員情報はキャッシュし、更新されるまでデータベースに問い合わせません。
 	 * 
 	 * @param id ID
 	 * @return 従業員情報
 	 * @throws 検索されない場合は例外が発生します
 	 */
+	@Cacheable(cacheNames = EMPLOYEE_CACHE, key = "#id")
 	public Employee showDetail(Integer id) {
 		Employee employee = employeeRepository.load(id);
 		return employee;
@@ -79,16 +140,45 @@ public class EmployeeService {
 	 * 
 	 * @param employee　更新した従業員情報
 	 */
+	@CacheEvict(cacheNames = EMPLOYEE_CACHE, key = "#employee.id")
 	public void update(Employee employee) {
 		employeeRepository.update(employee);
 	}
 
+	/**
+	 * 複数の従業員の扶養人数をまとめて更新します.
+	 * 全件を1つのトランザクションで、チャンクごとのバッチ更新で反映します。
+	 * 従業員詳細のキャッシュは1件ずつではなく、最後にまとめて破棄します。
+	 *
+	 * @param employeeList IDと扶養人数を設定した従業員情報のリスト
+	 * @return 更新結果 該当する従業員がいなかったIDを含みます
+	 */
+	@CacheEvict(cacheNames = EMPLOYEE_CACHE, allEntries = true)
+	public BatchUpdateResult updateDependentsCounts(List<Employee> employeeList) {
+		BatchUpdateResult result = new BatchUpdateResult();
+		result.setRequestedCount(employeeList.size());
+		for (int from = 0; from < employeeList.size(); from += batchUpdateChunkSize) {
+			List<Employee> chunk = employeeList.subList(from,
+					Math.min(from + batchUpdateChunkSize, employeeList.size()));
+			int[] counts = employeeRepository.updateDependentsCounts(chunk);
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					result.getNotFoundIds().add(chunk.get(i).getId());
+				} else {
+					result.setUpdatedCount(result.getUpdatedCount() + 1);
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * 名前の部分一致で従業員情報を検索します.
 	 *
 	 * @param name 検索する名前
 	 * @return 見つかった従業員情報のリスト.
 	 */
+	@Transactional(readOnly = true)
 	public List<Employee> search(String name) {
 		return employeeRepository.searchByName(name);
 	}
@@ -98,64 +188,120 @@ public class EmployeeService {
 	 *
 	 * @param name 検索する名前
 	 * @param page ページ番号(1オリジン)
-	 * @return 見つかった従業員情報のリスト.
+	 * @return 見つかった従業員情報のページ.
 	 */
-	public List<Employee> search(String name, int page) {
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> search(String name, int page) {
 		if (page < 1) {
 			throw new IllegalArgumentException("ページ番号は1以上でなければなりません");
 		}
 		int offset = (page - 1) * EMPLOYEES_PER_PAGE;
-		return employeeRepository.searchByName(name, EMPLOYEES_PER_PAGE, offset);
+		return employeeNameSearcher.search(name, EMPLOYEES_PER_PAGE, offset);
 	}
 
 	/**
-	 * 名前検索での従業員リストの最大のページ数を取得します.
-	 * 
+	 * 名前の部分一致で従業員情報を検索し、カーソルの位置の次のページを取得します.
+	 *
 	 * @param name 検索する名前
-	 * @return 名前検索での従業員リストの最大のページ数
+	 * @param cursor 現在のページの最後の従業員の位置
+	 * @return 見つかった従業員情報のページ.
 	 */
-	public int getMaxPageCount(String name) {
-		int size = employeeRepository.getSize(name);
-		System.out.println(size);
-		return (size - 1) / EMPLOYEES_PER_PAGE + 1;
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> searchAfter(String name, EmployeeCursor cursor) {
+		return employeeNameSearcher.searchAfter(name, cursor, EMPLOYEES_PER_PAGE);
 	}
 
 	/**
-	 * 従業員情報をデータベースに登録します.
+	 * 名前の部分一致で従業員情報を検索し、カーソルの位置の前のページを取得します.
 	 *
-	 * @param employee 登録するEmployeeオブジェクト
+	 * @param name 検索する名前
+	 * @param cursor 現在のページの最初の従業員の位置
+	 * @return 見つかった従業員情報のページ.
 	 */
-	public void create(Employee employee) {
-		employeeRepository.insert(employee);
+	@Transactional(readOnly = true)
+	public Page<EmployeeSummary> searchBefore(String name, EmployeeCursor cursor) {
+		return employeeNameSearcher.searchBefore(name, cursor, EMPLOYEES_PER_PAGE);
+	}
+
+	/**
+	 * 名前の部分一致で従業員情報を検索し、見つからなかった場合は代わりに従業員一覧を取得します.
+	 * 検索と一覧の取得は呼び出したスレッドで1つの読み取り専用のトランザクションとして実行し、
+	 * トランザクションのタイムアウトで1リクエストの問い合わせ全体にかかる時間を制限します。
+	 * タイムアウトは実行中のSQLにも適用されるため、時間の上限を超えた問い合わせはデータベースで実行され続けません。
+	 *
+	 * @param name 検索する名前
+	 * @param page ページ番号(1オリジン)
+	 * @param after このカーソルの次のページを検索する場合に指定
+	 * @param before このカーソルの前のページを検索する場合に指定
+	 * @return 検索結果
+	 * @throws org.springframework.dao.QueryTimeoutException SQLの実行中に時間の上限を超えた場合
+	 * @throws org.springframework.transaction.TransactionTimedOutException SQLの実行前に時間の上限を超えた場合
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public EmployeeSearchResult searchOrShowList(String name, int page, EmployeeCursor after, EmployeeCursor before) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+		transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queryTimeoutMillis + 999)));
+		return transactionTemplate.execute(status -> {
+			EmployeeSearchResult result = new EmployeeSearchResult();
+			if (after != null) {
+				result.setPage(searchAfter(name, after));
+			} else if (before != null) {
+				result.setPage(searchBefore(name, before));
+			} else {
+				result.setPage(search(name, page));
+			}
+			result.setFound(!result.getPage().getContent().isEmpty());
+			if (!result.isFound()) {
+				result.setPage(showList(page));
+			}
+			return result;
+		});
 	}
 
 	/**
-	 * アップロードされた画像を保存します.
+	 * 入力途中の文字列で始まる従業員名を検索候補として取得します.
+	 * 索引の構築前はデータベースから取得します。
 	 *
-	 * @param uploadedFile 保存するファイル
-	 * @return 保存先のファイル名
-	 * @throws IOException 保存に失敗した場合
+	 * @param prefix 入力途中の文字列
+	 * @return 従業員名のリスト(最大10件)
 	 */
-	public String saveFile(MultipartFile uploadedFile) throws IOException {
-		String origFilename = uploadedFile.getOriginalFilename();
-		String extension = origFilename.substring(origFilename.lastIndexOf(".") + 1);
-		File dest = createNewFile(extension);
-		uploadedFile.transferTo(dest);
+	@Transactional(readOnly = true)
+	public List<String> suggestNames(String prefix) {
+		if (prefix == null || prefix.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (employeeNameIndex.isReady()) {
+			return employeeNameIndex.findNamesByPrefix(prefix, NAME_CANDIDATES_LIMIT);
+		}
+		return employeeRepository.findNamesByPrefix(prefix, NAME_CANDIDATES_LIMIT);
+	}
 
-		return dest.getName();
+	/**
+	 * メールアドレスが既に登録済みかどうか確認します.
+	 * 登録されていないことがフィルターで分かる場合は、データベースに問い合わせません。
+	 * トランザクションを開始しないため、その場合は接続も取得しません。
+	 *
+	 * @param mailAddress メールアドレス
+	 * @return 登録済みであればtrue
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public boolean isMailAddressRegistered(String mailAddress) {
+		if (!employeeMailAddressFilter.mightBeRegistered(mailAddress)) {
+			return false;
+		}
+		return employeeRepository.existsByMailAddress(mailAddress);
 	}
 
 	/**
-	 * 画像保存用の新しいファイルを作成します.
+	 * 従業員情報をデータベースに登録します.
 	 *
-	 * @param extension ファイルの拡張子
-	 * @return 作成したファイルを表すFileオブジェクト
-	 * @throws IOException ファイルの作成に失敗した場合
+	 * @param employee 登録するEmployeeオブジェクト
+	 * @throws org.springframework.dao.DuplicateKeyException メールアドレスが既に登録されている場合
 	 */
-	private File createNewFile(String extension) throws IOException {
-		File imagesRoot = ResourceUtils.getFile("classpath:public/img");
-		File file = new File(imagesRoot, UUID.randomUUID() + "." + extension);
-		file.createNewFile();
-		return file;
+	@CacheEvict(cacheNames = EMPLOYEE_CACHE, key = "#employee.id")
+	public void create(Employee employee) {
+		employeeRepository.insert(employee);
+		eventPublisher.publishEvent(new EmployeeRegisteredEvent(employee));
 	}
 }
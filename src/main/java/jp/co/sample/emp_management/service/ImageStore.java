@@ -0,0 +1,284 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 画像を内容のハッシュ値で管理する保存先.
+ * 画像はSHA-256ハッシュ値と拡張子からなるキーで識別し、ハッシュ値の先頭2桁と次の2桁で分けたディレクトリに保存します。
+ * ハッシュ値は書き込みながら計算するため、ファイルを2回読み込むことはありません。
+ * 同じ内容の画像は1つのファイルだけを保存し、同じキーを返します。
+ * 縮小版の画像は保存先の下のthumbnailsディレクトリに同じ構成で保存します。
+ * このクラスで保存する前の画像(クラスパスのstatic/imgとpublic/imgにあるファイル)も、ファイル名をキーとして読み込めます。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class ImageStore {
+	/** 画像のキーの形式 */
+	private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,10}");
+	/** 拡張子として使える文字 */
+	private static final Pattern EXTENSION_PATTERN = Pattern.compile("[a-z0-9]{1,10}");
+	/** 拡張子がない場合や不正な場合に使う拡張子 */
+	private static final String DEFAULT_EXTENSION = "bin";
+	/** 以前の保存先に保存された画像のファイル名の形式 */
+	private static final Pattern LEGACY_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9]+");
+	/** 以前の保存先 */
+	private static final String[] LEGACY_LOCATIONS = { "static/img/", "public/img/" };
+	/** 書き込み中のファイルを置くディレクトリ名 */
+	private static final String TMP_DIRECTORY = "tmp";
+	/** 縮小版の画像を置くディレクトリ名 */
+	private static final String THUMBNAIL_DIRECTORY = "thumbnails";
+	/** 縮小版の画像のうち、以前の保存先の画像のものを置くディレクトリ名 */
+	private static final String LEGACY_DIRECTORY = "legacy";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** 保存先のルートディレクトリ */
+	private final Path root;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param root 保存先のルートディレクトリ
+	 */
+	public ImageStore(@Value("${employee.image.store-dir:${user.home}/emp-management/images}") Path root) {
+		this.root = root.toAbsolutePath();
+	}
+
+	/**
+	 * 画像を保存します.
+	 * 同じ内容の画像が既に保存されている場合は、新しいファイルを作らずに既存のキーを返します。
+	 *
+	 * @param in 画像の内容 このメソッドでは閉じません
+	 * @param extension 画像の拡張子
+	 * @return 画像のキー
+	 * @throws IOException 保存に失敗した場合
+	 */
+	public String save(InputStream in, String extension) throws IOException {
+		Path tmpFile = createTempFile();
+		try {
+			DigestInputStream digestIn = new DigestInputStream(in, newDigest());
+			Files.copy(digestIn, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+			String key = toHex(digestIn.getMessageDigest().digest()) + "." + normalizeExtension(extension);
+
+			Path dest = resolve(key);
+			if (!Files.exists(dest)) {
+				publish(tmpFile, dest);
+			}
+			return key;
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+
+	/**
+	 * アップロードされた画像を検証しながら保存します.
+	 * 形式は先頭のバイト列でJPEGかPNGかを判定し、拡張子も判定した形式に合わせます。
+	 * サイズは読み込みながら数え、上限を超えた時点で読み込みをやめます。
+	 * 検証と書き込みは1回の読み込みで行います。
+	 *
+	 * @param in 画像の内容 このメソッドでは閉じません
+	 * @param maxSize 受け付ける最大のバイト数
+	 * @return 画像のキー
+	 * @throws IOException 保存に失敗した場合
+	 * @throws InvalidImageException JPEGでもPNGでもない場合や、サイズが上限を超えた場合
+	 */
+	public String saveImage(InputStream in, long maxSize) throws IOException {
+		BufferedInputStream bufferedIn = new BufferedInputStream(in);
+		bufferedIn.mark(ImageType.MAGIC_LENGTH);
+		byte[] head = new byte[ImageType.MAGIC_LENGTH];
+		int length = 0;
+		while (length < head.length) {
+			int count = bufferedIn.read(head, length, head.length - length);
+			if (count < 0) {
+				break;
+			}
+			length += count;
+		}
+		bufferedIn.reset();
+		ImageType type = ImageType.detect(head, length);
+		if (type == null) {
+			throw new InvalidImageException(InvalidImageException.Reason.UNSUPPORTED_TYPE,
+					"JPEGまたはPNGの画像を選択してください");
+		}
+		return save(new LimitedInputStream(bufferedIn, maxSize), type.getExtension());
+	}
+
+	/**
+	 * 画像を読み込むためのリソースを返します.
+	 *
+	 * @param key 画像のキーまたは以前の保存先のファイル名
+	 * @return 画像のリソース 見つからない場合はnull
+	 */
+	public Resource open(String key) {
+		if (isKey(key)) {
+			Path path = resolve(key);
+			return Files.isRegularFile(path) ? new FileSystemResource(path) : null;
+		}
+		if (key == null || !LEGACY_NAME_PATTERN.matcher(key).matches()) {
+			return null;
+		}
+		for (String location : LEGACY_LOCATIONS) {
+			Resource resource = new ClassPathResource(location + key);
+			if (resource.exists()) {
+				return resource;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 画像の縮小版のパスを返します.
+	 *
+	 * @param key 画像のキーまたは以前の保存先のファイル名
+	 * @return 縮小版のパス キーの形式が正しくない場合はnull
+	 */
+	public Path resolveThumbnail(String key) {
+		Path thumbnails = root.resolve(THUMBNAIL_DIRECTORY);
+		if (isKey(key)) {
+			return thumbnails.resolve(Paths.get(key.substring(0, 2), key.substring(2, 4), key));
+		}
+		if (key != null && LEGACY_NAME_PATTERN.matcher(key).matches()) {
+			return thumbnails.resolve(Paths.get(LEGACY_DIRECTORY, key));
+		}
+		return null;
+	}
+
+	/**
+	 * 書き込み用の一時ファイルを作成します.
+	 * 書き込み後は{@link #publish(Path, Path)}で保存先へ移動します。
+	 *
+	 * @return 一時ファイルのパス
+	 * @throws IOException 作成に失敗した場合
+	 */
+	public Path createTempFile() throws IOException {
+		Path tmpDirectory = Files.createDirectories(root.resolve(TMP_DIRECTORY));
+		return Files.createTempFile(tmpDirectory, "upload", ".tmp");
+	}
+
+	/**
+	 * 書き込みを終えた一時ファイルを保存先へ移動します.
+	 * 移動は不可分に行うため、書き込み途中のファイルが読まれることはありません。
+	 * 同じ内容のファイルが同時に保存された場合は、先に移動したファイルを残します。
+	 *
+	 * @param source 一時ファイル
+	 * @param dest 保存先
+	 * @throws IOException 移動に失敗した場合
+	 */
+	public void publish(Path source, Path dest) throws IOException {
+		Files.createDirectories(dest.getParent());
+		try {
+			Files.move(source, dest, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			try {
+				Files.move(source, dest);
+			} catch (FileAlreadyExistsException ex) {
+				// 同じ内容なので既存のファイルを使う
+			}
+		} catch (FileAlreadyExistsException e) {
+			// 同じ内容なので既存のファイルを使う
+		}
+	}
+
+	/**
+	 * キーが表す画像ファイルのパスを返します.
+	 *
+	 * @param key 画像のキー
+	 * @return 画像ファイルのパス キーの形式が正しくない場合はnull
+	 */
+	public Path resolve(String key) {
+		if (!isKey(key)) {
+			return null;
+		}
+		return root.resolve(Paths.get(key.substring(0, 2), key.substring(2, 4), key));
+	}
+
+	/**
+	 * この保存先のキーの形式かどうかを判定します.
+	 *
+	 * @param key 判定する文字列
+	 * @return キーの形式ならtrue
+	 */
+	public boolean isKey(String key) {
+		return key != null && KEY_PATTERN.matcher(key).matches();
+	}
+
+	private static String normalizeExtension(String extension) {
+		if (extension == null) {
+			return DEFAULT_EXTENSION;
+		}
+		String normalized = extension.toLowerCase();
+		if ("jpeg".equals(normalized)) {
+			normalized = "jpg";
+		}
+		return EXTENSION_PATTERN.matcher(normalized).matches() ? normalized : DEFAULT_EXTENSION;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 読み込めるバイト数に上限を設けた入力ストリーム.
+	 * 上限を超えて読み込もうとした場合は{@link InvalidImageException}を投げます。
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		/** 残りの読み込めるバイト数 */
+		private long remaining;
+
+		private LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, (int) Math.min(len, remaining + 1));
+			if (count > 0) {
+				remaining -= count;
+				if (remaining < 0) {
+					throw new InvalidImageException(InvalidImageException.Reason.TOO_LARGE, "画像のサイズが大きすぎます");
+				}
+			}
+			return count;
+		}
+	}
+}
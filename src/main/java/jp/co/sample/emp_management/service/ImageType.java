@@ -0,0 +1,60 @@
+package jp.co.sample.emp_management.service;
+
+/**
+ * 受け付ける画像の形式.
+ * 形式はファイル名やContent-Typeではなく、先頭のバイト列(マジックナンバー)で判定します。
+ *
+ * @author takaram
+ *
+ */
+public enum ImageType {
+	/** JPEG */
+	JPEG("jpg", new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }),
+	/** PNG */
+	PNG("png", new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+
+	/** 判定に必要な先頭のバイト数 */
+	public static final int MAGIC_LENGTH = 8;
+
+	/** 保存時の拡張子 */
+	private final String extension;
+	/** 先頭のバイト列 */
+	private final byte[] magic;
+
+	private ImageType(String extension, byte[] magic) {
+		this.extension = extension;
+		this.magic = magic;
+	}
+
+	/**
+	 * 先頭のバイト列から画像の形式を判定します.
+	 *
+	 * @param head 先頭のバイト列
+	 * @param length headのうち読み込めたバイト数
+	 * @return 画像の形式 受け付けない形式の場合はnull
+	 */
+	public static ImageType detect(byte[] head, int length) {
+		for (ImageType type : values()) {
+			if (type.matches(head, length)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	private boolean matches(byte[] head, int length) {
+		if (length < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (head[i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+}
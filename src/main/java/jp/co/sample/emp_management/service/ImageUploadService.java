@@ -0,0 +1,102 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 従業員の画像のアップロードを受け付けるサービス.
+ * 画像は形式とサイズを検証しながら{@link ImageStore}へ直接書き込み、保存後に縮小版の作成を依頼します。
+ * 同時に受け付けるアップロードの数に上限を設け、登録が集中してもメモリや一時ファイルの使用量が一定に収まるようにします。
+ * ファイルの書き込み中にデータベース接続を保持しないよう、トランザクションは使いません。
+ *
+ * @author takaram
+ *
+ */
+@Service
+public class ImageUploadService {
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private ThumbnailService thumbnailService;
+
+	/** 受け付ける画像の最大のバイト数 */
+	private final long maxSize;
+	/** 同時に受け付けるアップロードの数の上限 */
+	private final Semaphore permits;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param maxSize 受け付ける画像の最大のバイト数
+	 * @param maxConcurrent 同時に受け付けるアップロードの数
+	 */
+	public ImageUploadService(@Value("${employee.image.upload.max-size:5242880}") long maxSize,
+			@Value("${employee.image.upload.max-concurrent:4}") int maxConcurrent) {
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * 画像を保存します.
+	 *
+	 * @param in 画像の内容 このメソッドでは閉じません
+	 * @param contentLength 画像のバイト数 不明な場合は-1
+	 * @return 保存した画像のキー
+	 * @throws IOException 保存に失敗した場合
+	 * @throws InvalidImageException JPEGでもPNGでもない場合や、サイズが上限を超えた場合
+	 * @throws RejectedExecutionException 同時に受け付けられる数を超えた場合
+	 */
+	public String save(InputStream in, long contentLength) throws IOException {
+		if (contentLength > maxSize) {
+			throw new InvalidImageException(InvalidImageException.Reason.TOO_LARGE, "画像のサイズが大きすぎます");
+		}
+		if (!permits.tryAcquire()) {
+			throw new RejectedExecutionException("画像のアップロードが混み合っています");
+		}
+		String key;
+		try {
+			key = imageStore.saveImage(in, maxSize);
+		} finally {
+			permits.release();
+		}
+		thumbnailService.request(key);
+		return key;
+	}
+
+	/**
+	 * フォームから送信された画像を保存します.
+	 *
+	 * @param uploadedFile 保存するファイル
+	 * @return 保存した画像のキー
+	 * @throws IOException 保存に失敗した場合
+	 * @throws InvalidImageException JPEGでもPNGでもない場合や、サイズが上限を超えた場合
+	 * @throws RejectedExecutionException 同時に受け付けられる数を超えた場合
+	 */
+	public String save(MultipartFile uploadedFile) throws IOException {
+		try (InputStream in = uploadedFile.getInputStream()) {
+			return save(in, uploadedFile.getSize());
+		}
+	}
+
+	/**
+	 * 画像のキーが保存済みの画像を表すかどうかを判定します.
+	 *
+	 * @param key 画像のキー
+	 * @return 保存済みの画像のキーならtrue
+	 */
+	public boolean exists(String key) {
+		return imageStore.isKey(key) && imageStore.open(key) != null;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+}
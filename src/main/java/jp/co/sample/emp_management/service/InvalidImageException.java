@@ -0,0 +1,39 @@
+package jp.co.sample.emp_management.service;
+
+/**
+ * アップロードされた画像を受け付けられない場合の例外.
+ *
+ * @author takaram
+ *
+ */
+public class InvalidImageException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 受け付けられない理由.
+	 */
+	public enum Reason {
+		/** JPEGでもPNGでもない */
+		UNSUPPORTED_TYPE,
+		/** サイズが上限を超えている */
+		TOO_LARGE
+	}
+
+	/** 受け付けられない理由 */
+	private final Reason reason;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param reason 受け付けられない理由
+	 * @param message エラーメッセージ
+	 */
+	public InvalidImageException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
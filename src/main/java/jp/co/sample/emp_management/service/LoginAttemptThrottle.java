@@ -0,0 +1,110 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 接続元とメールアドレスの組ごとにログインの試行回数を数え、失敗が続いた組のログインを一定時間拒否するクラス.
+ * 接続元ごとに数えるため、他人が誤ったパスワードを送り続けても本人のログインは拒否されません。
+ * 照合の前に{@link #tryAcquire(String, String)}で確認と記録を1回の操作で行うため、
+ * 同時にログインを試みても照合できる回数は上限を超えません。成功した場合は回数を消します。
+ * 拒否している間はパスワードを照合しないため、総当たりでCPUを使いません。
+ * 回数は最後の試行から一定時間で消え、件数にも上限があるためメモリを使い続けることはありません。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class LoginAttemptThrottle {
+	/** 記録する組の数の上限 */
+	private static final long MAX_ENTRIES = 100_000;
+
+	/** ログインを拒否するまでの失敗回数 */
+	private final int maxFailures;
+	/** 失敗回数を数える期間、兼ログインを拒否する期間(秒) */
+	private final long lockSeconds;
+	/** 接続元とメールアドレスの組ごとの試行回数(成功していないもの) */
+	private final Cache<String, Integer> failures;
+
+	private final Counter throttledCounter;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param maxFailures ログインを拒否するまでの失敗回数
+	 * @param lockSeconds 失敗回数を数える期間、兼ログインを拒否する期間(秒)
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public LoginAttemptThrottle(@Value("${employee.login.max-failures:5}") int maxFailures,
+			@Value("${employee.login.lock-seconds:300}") long lockSeconds, MeterRegistry meterRegistry) {
+		this.maxFailures = maxFailures;
+		this.lockSeconds = lockSeconds;
+		this.failures = Caffeine.newBuilder().maximumSize(MAX_ENTRIES)
+				.expireAfterWrite(lockSeconds, TimeUnit.SECONDS).build();
+		throttledCounter = Counter.builder("login.throttled")
+				.description("失敗が続いたため拒否したログインの回数").register(meterRegistry);
+	}
+
+	/**
+	 * ログインを試みてよいかを判定し、よい場合は試行を失敗として記録します.
+	 * 判定と記録は1回の操作で行います。
+	 *
+	 * @param clientAddress 接続元のアドレス
+	 * @param mailAddress メールアドレス
+	 * @return 試みてよい場合はtrue 失敗が続いていて拒否する場合はfalse
+	 */
+	public boolean tryAcquire(String clientAddress, String mailAddress) {
+		boolean[] acquired = new boolean[1];
+		failures.asMap().compute(key(clientAddress, mailAddress), (key, count) -> {
+			int current = count == null ? 0 : count;
+			if (current >= maxFailures) {
+				return count;
+			}
+			acquired[0] = true;
+			return current + 1;
+		});
+		if (!acquired[0]) {
+			throttledCounter.increment();
+		}
+		return acquired[0];
+	}
+
+	/**
+	 * 照合できなかった試行の記録を取り消します.
+	 *
+	 * @param clientAddress 接続元のアドレス
+	 * @param mailAddress メールアドレス
+	 */
+	public void release(String clientAddress, String mailAddress) {
+		failures.asMap().computeIfPresent(key(clientAddress, mailAddress),
+				(key, count) -> count <= 1 ? null : count - 1);
+	}
+
+	/**
+	 * ログインの成功を記録し、失敗回数を消します.
+	 *
+	 * @param clientAddress 接続元のアドレス
+	 * @param mailAddress メールアドレス
+	 */
+	public void recordSuccess(String clientAddress, String mailAddress) {
+		failures.invalidate(key(clientAddress, mailAddress));
+	}
+
+	public long getLockSeconds() {
+		return lockSeconds;
+	}
+
+	private static String key(String clientAddress, String mailAddress) {
+		String normalizedMailAddress = mailAddress == null ? "" : mailAddress.trim().toLowerCase(Locale.ROOT);
+		return clientAddress + " " + normalizedMailAddress;
+	}
+}
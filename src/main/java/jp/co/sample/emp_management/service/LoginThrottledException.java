@@ -0,0 +1,29 @@
+package jp.co.sample.emp_management.service;
+
+/**
+ * ログインの失敗が続いたため、ログインを受け付けない場合の例外.
+ *
+ * @author takaram
+ *
+ */
+public class LoginThrottledException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/** 再度ログインできるようになるまでの秒数の目安 */
+	private final long retryAfterSeconds;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param message エラーメッセージ
+	 * @param retryAfterSeconds 再度ログインできるようになるまでの秒数の目安
+	 */
+	public LoginThrottledException(String message, long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
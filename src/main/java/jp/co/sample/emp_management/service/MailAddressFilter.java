@@ -0,0 +1,98 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * 登録済みのメールアドレスを{@link BloomFilter}で管理するクラスの基底クラス.
+ * 「登録されていない」という判定は確実なため、新しいメールアドレスの重複確認ではデータベースに問い合わせずに済みます。
+ * 起動時にデータベースから作成し、登録時に追加します。
+ * 他のインスタンスで登録されたメールアドレスは定期的に作り直すまで含まれないため、
+ * 重複の最終的な判定はデータベースの一意制約で行います。
+ * 作成が終わるまでは、すべてのメールアドレスを「登録されている可能性がある」と判定します。
+ *
+ * @author takaram
+ *
+ */
+public abstract class MailAddressFilter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MailAddressFilter.class);
+
+	/** 想定する登録件数 */
+	private final long expectedInsertions;
+	/** 誤判定率 */
+	private final double falsePositiveProbability;
+
+	/** 判定に使うフィルター. 作成前はnull */
+	private volatile BloomFilter filter;
+	/** 作り直している途中のフィルター. 作り直している間の登録はこちらにも追加する */
+	private volatile BloomFilter building;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param expectedInsertions 想定する登録件数
+	 * @param falsePositiveProbability 誤判定率
+	 */
+	protected MailAddressFilter(long expectedInsertions, double falsePositiveProbability) {
+		this.expectedInsertions = expectedInsertions;
+		this.falsePositiveProbability = falsePositiveProbability;
+	}
+
+	/**
+	 * データベースに登録されているメールアドレスを1件ずつ処理します.
+	 *
+	 * @param action メールアドレスを受け取る処理
+	 * @return 処理した件数
+	 */
+	protected abstract int forEachMailAddress(Consumer<String> action);
+
+	/**
+	 * メールアドレスが登録されている可能性があるかどうかを判定します.
+	 *
+	 * @param mailAddress メールアドレス
+	 * @return 登録されている可能性がある場合はtrue falseの場合は(このインスタンスが知る限り)登録されていません
+	 */
+	public boolean mightBeRegistered(String mailAddress) {
+		BloomFilter current = filter;
+		return mailAddress == null || current == null || current.mightContain(mailAddress);
+	}
+
+	/**
+	 * 登録したメールアドレスを追加します.
+	 *
+	 * @param mailAddress メールアドレス
+	 */
+	public void add(String mailAddress) {
+		BloomFilter current = filter;
+		if (current != null) {
+			current.put(mailAddress);
+		}
+		BloomFilter next = building;
+		if (next != null) {
+			next.put(mailAddress);
+		}
+	}
+
+	/**
+	 * データベースに登録されているメールアドレスからフィルターを作り直します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${employee.mail-address-filter.rebuild-interval-millis:3600000}",
+			initialDelayString = "${employee.mail-address-filter.rebuild-interval-millis:3600000}")
+	public synchronized void rebuild() {
+		BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveProbability);
+		building = next;
+		try {
+			int count = forEachMailAddress(next::put);
+			filter = next;
+			LOGGER.debug("{}を作成しました: {}件", getClass().getSimpleName(), count);
+		} finally {
+			building = null;
+		}
+	}
+}
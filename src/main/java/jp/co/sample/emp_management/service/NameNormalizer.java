@@ -0,0 +1,41 @@
+package jp.co.sample.emp_management.service;
+
+import java.text.Normalizer;
+
+/**
+ * 名前の表記ゆれを吸収するための正規化を行うクラス.
+ * 全角・半角の違い(NFKC正規化)、ひらがなとカタカナの違い、英字の大文字と小文字の違い、空白の有無を同一視します。
+ * 漢字と読みがなの対応は扱わないため、「山田」と「ﾔﾏﾀﾞ」は別の名前として扱われます。
+ *
+ * @author takaram
+ *
+ */
+public final class NameNormalizer {
+	/** ひらがなとカタカナのコードポイントの差 */
+	private static final int KATAKANA_OFFSET = 'ア' - 'あ';
+
+	private NameNormalizer() {
+	}
+
+	/**
+	 * 名前を比較用の形に正規化します.
+	 *
+	 * @param name 名前
+	 * @return 正規化した名前
+	 */
+	public static String normalize(String name) {
+		String normalized = Normalizer.normalize(name, Normalizer.Form.NFKC);
+		StringBuilder builder = new StringBuilder(normalized.length());
+		for (int i = 0; i < normalized.length(); i++) {
+			char c = normalized.charAt(i);
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			if (('ぁ' <= c && c <= 'ゖ') || c == 'ゝ' || c == 'ゞ') {
+				c = (char) (c + KATAKANA_OFFSET);
+			}
+			builder.append(Character.toLowerCase(c));
+		}
+		return builder.toString();
+	}
+}
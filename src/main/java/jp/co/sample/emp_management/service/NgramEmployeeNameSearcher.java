@@ -0,0 +1,302 @@
+package jp.co.sample.emp_management.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.event.EmployeeRegisteredEvent;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 名前のユニグラムとバイグラムの転置索引をメモリ上に持つ検索エンジン.
+ * 検索する名前に含まれるN-gramのうち、最も該当者の少ないものの転置リストだけを走査して部分一致を確認するため、
+ * 全件を走査するLIKE検索を使いません。データベースには表示する1ページ分の従業員情報の取得だけを問い合わせます。
+ * 名前は{@link NameNormalizer}で正規化してから比較します。
+ * 転置リストは一覧の並び順に並べたスキップリストで、追加は1件あたりO(log n)です。
+ * CSV一括登録のように大量に追加しても索引全体をコピーしません。
+ * 起動時にデータベースから構築し、従業員の登録時に追加します。構築前はデータベースのLIKE検索を使います。
+ * 他のインスタンスで登録された従業員を取り込むため、定期的にデータベースから作り直します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "employee.search.engine", havingValue = "ngram", matchIfMissing = true)
+public class NgramEmployeeNameSearcher implements EmployeeNameSearcher {
+	/** 一覧の並び順(入社日の降順、重複の場合はIDの降順) */
+	private static final Comparator<Document> LIST_ORDER = Comparator
+			.comparingLong((Document document) -> document.hireTime).reversed()
+			.thenComparing(Comparator.comparingInt((Document document) -> document.id).reversed());
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/** 索引. 構築前はnull */
+	private volatile Index index;
+	/** 作り直している途中の索引. 作り直している間の追加はこちらにも反映する */
+	private volatile Index building;
+
+	/**
+	 * データベースの内容から索引を作り直します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${employee.search.rebuild-interval-millis:3600000}",
+			initialDelayString = "${employee.search.rebuild-interval-millis:3600000}")
+	public synchronized void rebuild() {
+		Index newIndex = new Index();
+		building = newIndex;
+		try {
+			for (Employee employee : employeeRepository.findAllSearchKeys()) {
+				newIndex.add(new Document(employee));
+			}
+			index = newIndex;
+		} finally {
+			building = null;
+		}
+	}
+
+	/**
+	 * 登録された従業員を索引に追加します.
+	 *
+	 * @param event 従業員登録イベント
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmployeeRegistered(EmployeeRegisteredEvent event) {
+		add(event.getEmployee());
+	}
+
+	/**
+	 * 従業員を索引に追加します. 既に登録されている場合は何もしません。
+	 *
+	 * @param employee ID、名前、入社日が設定された従業員情報
+	 */
+	public void add(Employee employee) {
+		Document document = new Document(employee);
+		Index current = index;
+		if (current != null) {
+			current.add(document);
+		}
+		Index next = building;
+		if (next != null) {
+			next.add(document);
+		}
+	}
+
+	@Override
+	public Page<EmployeeSummary> search(String name, int limit, int offset) {
+		Index current = index;
+		if (current == null) {
+			return employeeRepository.searchPageByName(name, limit, offset);
+		}
+		String key = NameNormalizer.normalize(name);
+		List<Integer> idList = new ArrayList<>(limit);
+		int totalCount = 0;
+		for (Document document : current.candidates(key)) {
+			if (!document.key.contains(key)) {
+				continue;
+			}
+			if (totalCount >= offset && idList.size() < limit) {
+				idList.add(document.id);
+			}
+			totalCount++;
+		}
+		return new Page<>(employeeRepository.findByIds(idList), totalCount, limit);
+	}
+
+	@Override
+	public Page<EmployeeSummary> searchAfter(String name, EmployeeCursor cursor, int limit) {
+		Index current = index;
+		if (current == null) {
+			return employeeRepository.searchByNameAfter(name, cursor, limit);
+		}
+		String key = NameNormalizer.normalize(name);
+		Document position = new Document(cursor);
+		List<Integer> idList = new ArrayList<>(limit);
+		int totalCount = 0;
+		for (Document document : current.candidates(key)) {
+			if (!document.key.contains(key)) {
+				continue;
+			}
+			if (idList.size() < limit && LIST_ORDER.compare(document, position) > 0) {
+				idList.add(document.id);
+			}
+			totalCount++;
+		}
+		return new Page<>(employeeRepository.findByIds(idList), totalCount, limit);
+	}
+
+	@Override
+	public Page<EmployeeSummary> searchBefore(String name, EmployeeCursor cursor, int limit) {
+		Index current = index;
+		if (current == null) {
+			return employeeRepository.searchByNameBefore(name, cursor, limit);
+		}
+		String key = NameNormalizer.normalize(name);
+		Document position = new Document(cursor);
+		Deque<Integer> idDeque = new ArrayDeque<>(limit + 1);
+		int totalCount = 0;
+		for (Document document : current.candidates(key)) {
+			if (!document.key.contains(key)) {
+				continue;
+			}
+			if (LIST_ORDER.compare(document, position) < 0) {
+				idDeque.addLast(document.id);
+				if (idDeque.size() > limit) {
+					idDeque.removeFirst();
+				}
+			}
+			totalCount++;
+		}
+		return new Page<>(employeeRepository.findByIds(new ArrayList<>(idDeque)), totalCount, limit);
+	}
+
+	/**
+	 * 正規化した名前に含まれるユニグラムとバイグラムを返します.
+	 *
+	 * @param key 正規化した名前
+	 * @return N-gramの集合
+	 */
+	private static Set<String> grams(String key) {
+		Set<String> gramSet = new LinkedHashSet<>();
+		for (int i = 0; i < key.length(); i++) {
+			gramSet.add(key.substring(i, i + 1));
+			if (i + 1 < key.length()) {
+				gramSet.add(key.substring(i, i + 2));
+			}
+		}
+		return gramSet;
+	}
+
+	/**
+	 * 全従業員の一覧と、N-gramごとの転置リスト.
+	 * 検索と並行して追加できます。
+	 */
+	private static class Index {
+		/** 一覧の並び順に並べた全従業員 */
+		private final NavigableSet<Document> all = new ConcurrentSkipListSet<>(LIST_ORDER);
+		/** N-gramから、それを含む従業員の転置リストへの対応 */
+		private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+
+		/**
+		 * 従業員を追加します. 既に登録されている場合は何もしません。
+		 *
+		 * @param document 追加する従業員
+		 */
+		private void add(Document document) {
+			if (!all.add(document)) {
+				return;
+			}
+			for (String gram : grams(document.key)) {
+				postings.computeIfAbsent(gram, key -> new Posting()).add(document);
+			}
+		}
+
+		/**
+		 * 検索する名前を含む可能性のある従業員を一覧の並び順で返します.
+		 *
+		 * @param key 正規化した検索する名前
+		 * @return 候補の従業員
+		 */
+		private Iterable<Document> candidates(String key) {
+			if (key.isEmpty()) {
+				return all;
+			}
+			Set<String> gramSet = key.length() == 1 ? grams(key) : bigrams(key);
+			Posting smallest = null;
+			for (String gram : gramSet) {
+				Posting posting = postings.get(gram);
+				if (posting == null) {
+					return Collections.emptyList();
+				}
+				if (smallest == null || posting.size() < smallest.size()) {
+					smallest = posting;
+				}
+			}
+			return smallest.documents;
+		}
+
+		private static Set<String> bigrams(String key) {
+			Set<String> gramSet = new LinkedHashSet<>();
+			for (int i = 0; i + 1 < key.length(); i++) {
+				gramSet.add(key.substring(i, i + 2));
+			}
+			return gramSet;
+		}
+	}
+
+	/**
+	 * 1つのN-gramを含む従業員を一覧の並び順に並べた転置リスト.
+	 * スキップリストの件数の数え上げは全体を走査するため、件数は別に数えます。
+	 */
+	private static class Posting {
+		private final NavigableSet<Document> documents = new ConcurrentSkipListSet<>(LIST_ORDER);
+		private final AtomicInteger size = new AtomicInteger();
+
+		private void add(Document document) {
+			if (documents.add(document)) {
+				size.incrementAndGet();
+			}
+		}
+
+		private int size() {
+			return size.get();
+		}
+	}
+
+	/**
+	 * 索引に登録する従業員1人分のデータ.
+	 */
+	private static class Document {
+		/** ID */
+		private final int id;
+		/** 入社日(エポックマイクロ秒). timestamp列の精度にあわせ、ミリ秒未満も比較する */
+		private final long hireTime;
+		/** 正規化した名前 */
+		private final String key;
+
+		private Document(Employee employee) {
+			this.id = employee.getId();
+			this.hireTime = toMicros(employee.getHireDate());
+			this.key = NameNormalizer.normalize(employee.getName());
+		}
+
+		private Document(EmployeeCursor cursor) {
+			this.id = cursor.getId();
+			this.hireTime = toMicros(cursor.getHireDate());
+			this.key = "";
+		}
+
+		private static long toMicros(Date date) {
+			long micros = TimeUnit.MILLISECONDS.toMicros(date.getTime());
+			if (date instanceof Timestamp) {
+				micros += ((Timestamp) date).getNanos() / 1000 % 1000;
+			}
+			return micros;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * パスワードのハッシュ化と照合を行う専用のスレッドプール.
+ * スレッド数と待ち行列の長さに上限を設け、溢れた依頼は待たせずに{@link RejectedExecutionException}で拒否します。
+ * ログインが集中してもCPUを使う処理はこのプールのスレッド数までに抑えられ、他の画面の処理を妨げません。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class PasswordHashingExecutor {
+	/** 処理用のスレッドプール */
+	private final ThreadPoolExecutor executor;
+	/** 依頼してから結果を待つ最大の時間(ミリ秒) */
+	private final long timeoutMillis;
+
+	private final Timer queueWaitTimer;
+	private final Timer hashTimer;
+	private final Counter rejectionCounter;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param threads スレッド数 0以下の場合はCPU数
+	 * @param queueCapacity 待ち行列の長さ
+	 * @param timeoutMillis 依頼してから結果を待つ最大の時間(ミリ秒)
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public PasswordHashingExecutor(@Value("${employee.password.hashing.threads:0}") int threads,
+			@Value("${employee.password.hashing.queue-capacity:32}") int queueCapacity,
+			@Value("${employee.password.hashing.timeout-millis:5000}") long timeoutMillis,
+			MeterRegistry meterRegistry) {
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		this.timeoutMillis = timeoutMillis;
+
+		queueWaitTimer = Timer.builder("password.hashing.queue.wait")
+				.description("パスワード処理の依頼から開始までの待ち時間").register(meterRegistry);
+		hashTimer = Timer.builder("password.hashing.duration")
+				.description("パスワードのハッシュ化または照合にかかった時間").register(meterRegistry);
+		rejectionCounter = Counter.builder("password.hashing.rejections")
+				.description("混雑のため拒否したパスワード処理の数").register(meterRegistry);
+		Gauge.builder("password.hashing.queue", executor, pool -> pool.getQueue().size())
+				.description("開始を待っているパスワード処理の数").register(meterRegistry);
+	}
+
+	/**
+	 * パスワードの処理を専用のスレッドで実行し、結果を待ちます.
+	 *
+	 * @param task ハッシュ化または照合の処理
+	 * @return 処理の結果
+	 * @throws RejectedExecutionException 待ち行列が一杯の場合や、結果を待つ時間の上限を超えた場合
+	 */
+	public <T> T execute(Supplier<T> task) {
+		long submitted = System.nanoTime();
+		Future<T> future;
+		try {
+			future = executor.submit(() -> {
+				queueWaitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+				return hashTimer.record(task);
+			});
+		} catch (RejectedExecutionException e) {
+			rejectionCounter.increment();
+			throw new RejectedExecutionException("パスワードの処理が混み合っています", e);
+		}
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			rejectionCounter.increment();
+			throw new RejectedExecutionException("パスワードの処理が混み合っています", e);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("パスワードの処理が中断されました", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * スレッドプールを停止します.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
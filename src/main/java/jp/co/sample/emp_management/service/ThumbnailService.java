@@ -0,0 +1,284 @@
+package jp.co.sample.emp_management.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員の画像の縮小版をバックグラウンドで作成するサービス.
+ * 縮小版は長辺を設定したサイズに収めた、元の画像と同じ形式の画像です。
+ * 作成は上限のあるキューを持つスレッドプールで行い、キューが一杯の場合は依頼を捨てることで、
+ * 依頼したリクエストのスレッドで画像を読み込まないようにします。捨てた依頼は、次に縮小版が要求されたときに依頼し直します。
+ * 画像は読み込む前に大きさを確かめ、ピクセル数が上限を超える画像は縮小版を作りません。
+ * 読み込むときは縮小版に必要な分だけ間引くため、大きな画像でも元の大きさのままメモリに展開しません。
+ * 起動時には縮小版のない既存の画像の作成を、キューの空きを待ちながら別スレッドから順に依頼します。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class ThumbnailService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailService.class);
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/** 縮小版の長辺のピクセル数 */
+	private final int size;
+	/** 縮小版を作る画像の最大のピクセル数 */
+	private final long maxPixels;
+	/** 作成用のスレッドプール */
+	private final ThreadPoolExecutor executor;
+	/** 作成を依頼済みで、まだ終わっていない画像のキー */
+	private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+	private final Timer generationTimer;
+	private final Counter failureCounter;
+	private final Counter droppedCounter;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param size 縮小版の長辺のピクセル数
+	 * @param threads 作成に使うスレッド数
+	 * @param queueCapacity 作成待ちの依頼を溜めておける数
+	 * @param maxPixels 縮小版を作る画像の最大のピクセル数
+	 * @param meterRegistry メトリクスの登録先
+	 */
+	public ThumbnailService(@Value("${employee.image.thumbnail.size:240}") int size,
+			@Value("${employee.image.thumbnail.threads:2}") int threads,
+			@Value("${employee.image.thumbnail.queue-capacity:100}") int queueCapacity,
+			@Value("${employee.image.thumbnail.max-pixels:40000000}") long maxPixels,
+			MeterRegistry meterRegistry) {
+		this.size = size;
+		this.maxPixels = maxPixels;
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+		generationTimer = Timer.builder("employee.image.thumbnail.generation")
+				.description("縮小版の作成にかかった時間").register(meterRegistry);
+		failureCounter = Counter.builder("employee.image.thumbnail.failures")
+				.description("縮小版の作成に失敗した回数").register(meterRegistry);
+		droppedCounter = Counter.builder("employee.image.thumbnail.dropped")
+				.description("キューが一杯のため捨てた作成依頼の数").register(meterRegistry);
+		Gauge.builder("employee.image.thumbnail.queue", executor, pool -> pool.getQueue().size())
+				.description("作成待ちの縮小版の数").register(meterRegistry);
+	}
+
+	/**
+	 * 画像の縮小版の作成を依頼します.
+	 * 縮小版が既にある場合や、作成を依頼済みの場合は何もしません。
+	 * キューが一杯の場合は依頼を捨てます。
+	 *
+	 * @param key 画像のキーまたは以前の保存先のファイル名
+	 */
+	public void request(String key) {
+		Path thumbnail = imageStore.resolveThumbnail(key);
+		if (thumbnail == null || Files.exists(thumbnail) || !pendingKeys.add(key)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					generationTimer.record(() -> generate(key, thumbnail));
+				} finally {
+					pendingKeys.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingKeys.remove(key);
+			droppedCounter.increment();
+		}
+	}
+
+	/**
+	 * 縮小版のない既存の画像について、縮小版の作成を依頼します.
+	 * 依頼はキューの空きを待って進むため、起動直後の処理を妨げないよう別スレッドで行います。
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfill() {
+		Thread thread = new Thread(() -> {
+			List<String> imageList = employeeRepository.findAllImages();
+			try {
+				for (String key : imageList) {
+					while (executor.getQueue().remainingCapacity() == 0) {
+						Thread.sleep(100);
+					}
+					request(key);
+				}
+				LOGGER.info("{}件の画像の縮小版を確認しました", imageList.size());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "thumbnail-backfill");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 縮小版の長辺のピクセル数を返します.
+	 *
+	 * @return 縮小版の長辺のピクセル数
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * スレッドプールを停止します.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 縮小版を作成します.
+	 *
+	 * @param key 画像のキーまたは以前の保存先のファイル名
+	 * @param thumbnail 縮小版の保存先
+	 */
+	private void generate(String key, Path thumbnail) {
+		Resource original = imageStore.open(key);
+		if (original == null) {
+			return;
+		}
+		String formatName = key.substring(key.lastIndexOf('.') + 1).toLowerCase();
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(formatName);
+		if (!writers.hasNext()) {
+			failureCounter.increment();
+			LOGGER.warn("縮小版を作成できない形式です: {}", key);
+			return;
+		}
+		try {
+			BufferedImage image;
+			try (InputStream in = original.getInputStream()) {
+				image = read(in, key);
+			}
+			if (image == null) {
+				failureCounter.increment();
+				return;
+			}
+			BufferedImage scaled = scale(image, "jpg".equals(formatName) || "jpeg".equals(formatName));
+			Path tmpFile = imageStore.createTempFile();
+			try {
+				ImageIO.write(scaled, formatName, tmpFile.toFile());
+				imageStore.publish(tmpFile, thumbnail);
+			} finally {
+				Files.deleteIfExists(tmpFile);
+			}
+		} catch (IOException | RuntimeException e) {
+			failureCounter.increment();
+			LOGGER.warn("縮小版の作成に失敗しました: " + key, e);
+		}
+	}
+
+	/**
+	 * 縮小版に必要な分だけ間引いて画像を読み込みます.
+	 * 先に画像の大きさだけを読み、ピクセル数が上限を超える場合は画像を展開しません。
+	 *
+	 * @param in 画像の内容
+	 * @param key 画像のキー(ログ用)
+	 * @return 画像 読み込めない場合や大きすぎる場合はnull
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	private BufferedImage read(InputStream in, String key) throws IOException {
+		try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+			Iterator<ImageReader> readers = imageIn == null ? null : ImageIO.getImageReaders(imageIn);
+			if (readers == null || !readers.hasNext()) {
+				LOGGER.warn("画像を読み込めません: {}", key);
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageIn, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				if ((long) width * height > maxPixels) {
+					LOGGER.warn("画像が大きすぎるため縮小版を作成しません: {} ({}x{})", key, width, height);
+					return null;
+				}
+				int period = Math.max(1, Math.max(width, height) / size);
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(period, period, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * 長辺が縮小版のサイズに収まるよう画像を縮小します. 既に収まっている場合は大きさを変えません。
+	 *
+	 * @param image 元の画像
+	 * @param opaque 透過色を使えない形式の場合はtrue 透明な部分は白で塗ります
+	 * @return 縮小した画像
+	 */
+	private BufferedImage scale(BufferedImage image, boolean opaque) {
+		double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+		BufferedImage scaled = new BufferedImage(width, height,
+				opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			if (opaque) {
+				graphics.setColor(Color.WHITE);
+				graphics.fillRect(0, 0, width, height);
+			}
+			graphics.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+}
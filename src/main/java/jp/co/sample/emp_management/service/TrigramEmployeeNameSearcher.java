@@ -0,0 +1,49 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * PostgreSQLのpg_trgm拡張を使う検索エンジン.
+ * employees.nameにgin_trgm_opsのGINインデックスを作成しておくと、
+ * 前方が任意の文字列であるLIKE検索でもインデックスが使われます。
+ * employee.search.engineにpg-trgmを指定すると有効になります。
+ *
+ * @author takaram
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "employee.search.engine", havingValue = "pg-trgm")
+public class TrigramEmployeeNameSearcher implements EmployeeNameSearcher {
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Override
+	public Page<EmployeeSummary> search(String name, int limit, int offset) {
+		Page<EmployeeSummary> page = employeeRepository.searchPageByName(name, limit, offset);
+		if (page.isEmpty() && offset > 0) {
+			// 範囲外のページでは件数が取れないため、件数だけ別に取得する
+			return new Page<>(Collections.emptyList(), employeeRepository.getSize(name), limit);
+		}
+		return page;
+	}
+
+	@Override
+	public Page<EmployeeSummary> searchAfter(String name, EmployeeCursor cursor, int limit) {
+		return employeeRepository.searchByNameAfter(name, cursor, limit);
+	}
+
+	@Override
+	public Page<EmployeeSummary> searchBefore(String name, EmployeeCursor cursor, int limit) {
+		return employeeRepository.searchByNameBefore(name, cursor, limit);
+	}
+}
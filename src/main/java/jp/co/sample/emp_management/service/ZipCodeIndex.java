@@ -0,0 +1,224 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 郵便番号から住所を引くメモリ上の索引.
+ * 日本郵便の郵便番号データ(KEN_ALL.CSV、Shift_JIS)から作成し、
+ * 郵便番号の昇順に並べたint配列を二分探索するため、外部のAPIやデータベースに問い合わせずに住所を返せます。
+ * 起動時に読み込み、{@link #reload()}で読み込み直せます。読み込み直している間も以前の索引で検索できます。
+ *
+ * @author takaram
+ *
+ */
+@Component
+public class ZipCodeIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ZipCodeIndex.class);
+
+	/** KEN_ALL.CSVの文字コード */
+	private static final Charset KEN_ALL_CHARSET = Charset.forName("MS932");
+	/** 郵便番号の列 */
+	private static final int ZIP_CODE_COLUMN = 2;
+	/** 都道府県名の列 */
+	private static final int PREFECTURE_COLUMN = 6;
+	/** 市区町村名の列 */
+	private static final int CITY_COLUMN = 7;
+	/** 町域名の列 */
+	private static final int TOWN_COLUMN = 8;
+	/** 町域名が掲載されていない郵便番号の町域名 */
+	private static final String NO_TOWN = "以下に掲載がない場合";
+
+	/** KEN_ALL.CSVのパス */
+	private final Path path;
+
+	/** 索引. 読み込み前は空 */
+	private volatile Snapshot snapshot = new Snapshot(new int[0], new int[] { 0 }, new String[0], null);
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param path KEN_ALL.CSVのパス
+	 */
+	public ZipCodeIndex(@Value("${employee.zipcode.ken-all-path:${user.home}/emp-management/KEN_ALL.CSV}") Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * 起動時に郵便番号データを読み込みます. ファイルがない場合は空の索引のまま起動します。
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		if (!Files.isReadable(path)) {
+			LOGGER.warn("郵便番号データがありません: {}", path);
+			return;
+		}
+		try {
+			reload();
+		} catch (IOException e) {
+			LOGGER.warn("郵便番号データを読み込めません: " + path, e);
+		}
+	}
+
+	/**
+	 * 郵便番号データを読み込み直します.
+	 *
+	 * @return 読み込んだ郵便番号の数
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public synchronized int reload() throws IOException {
+		long start = System.nanoTime();
+		Map<Integer, List<String>> addressMap = new TreeMap<>();
+		try (CsvReader reader = new CsvReader(
+				new BufferedReader(new InputStreamReader(Files.newInputStream(path), KEN_ALL_CHARSET)))) {
+			List<String> record;
+			StringBuilder town = null;
+			String pending = null;
+			int pendingZipCode = 0;
+			while ((record = reader.readRecord()) != null) {
+				if (record.size() <= TOWN_COLUMN) {
+					continue;
+				}
+				// 長い町域名は括弧の途中で複数行に分かれているため、括弧が閉じるまでつなげる
+				if (town != null && Integer.parseInt(record.get(ZIP_CODE_COLUMN)) == pendingZipCode) {
+					town.append(record.get(TOWN_COLUMN));
+					if (record.get(TOWN_COLUMN).contains("）")) {
+						add(addressMap, pendingZipCode, pending + town);
+						town = null;
+					}
+					continue;
+				}
+				if (town != null) {
+					add(addressMap, pendingZipCode, pending + town);
+					town = null;
+				}
+				int zipCode = Integer.parseInt(record.get(ZIP_CODE_COLUMN));
+				String prefix = record.get(PREFECTURE_COLUMN) + record.get(CITY_COLUMN);
+				String townName = record.get(TOWN_COLUMN);
+				if (townName.contains("（") && !townName.contains("）")) {
+					town = new StringBuilder(townName);
+					pending = prefix;
+					pendingZipCode = zipCode;
+				} else {
+					add(addressMap, zipCode, prefix + townName);
+				}
+			}
+			if (town != null) {
+				add(addressMap, pendingZipCode, pending + town);
+			}
+		}
+
+		int[] zipCodes = new int[addressMap.size()];
+		int[] offsets = new int[addressMap.size() + 1];
+		List<String> addressList = new ArrayList<>();
+		int i = 0;
+		for (Map.Entry<Integer, List<String>> entry : addressMap.entrySet()) {
+			zipCodes[i] = entry.getKey();
+			offsets[i] = addressList.size();
+			addressList.addAll(entry.getValue());
+			i++;
+		}
+		offsets[i] = addressList.size();
+		snapshot = new Snapshot(zipCodes, offsets, addressList.toArray(new String[0]), new Date());
+		LOGGER.info("郵便番号データを読み込みました: {}件 ({}ms)", zipCodes.length, (System.nanoTime() - start) / 1_000_000);
+		return zipCodes.length;
+	}
+
+	/**
+	 * 郵便番号に該当する住所を返します.
+	 *
+	 * @param zipCode 郵便番号(ハイフンの有無は問いません)
+	 * @return 住所のリスト 該当しない場合や郵便番号の形式が正しくない場合は空のリスト
+	 */
+	public List<String> find(String zipCode) {
+		if (zipCode == null) {
+			return Collections.emptyList();
+		}
+		String digits = zipCode.replace("-", "");
+		if (digits.length() != 7 || !digits.chars().allMatch(c -> c >= '0' && c <= '9')) {
+			return Collections.emptyList();
+		}
+		Snapshot current = snapshot;
+		int index = Arrays.binarySearch(current.zipCodes, Integer.parseInt(digits));
+		if (index < 0) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(
+				Arrays.asList(current.addresses).subList(current.offsets[index], current.offsets[index + 1]));
+	}
+
+	/**
+	 * 索引に登録されている郵便番号の数を返します.
+	 *
+	 * @return 郵便番号の数
+	 */
+	public int size() {
+		return snapshot.zipCodes.length;
+	}
+
+	/**
+	 * 最後に読み込んだ日時を返します.
+	 *
+	 * @return 読み込んだ日時 まだ読み込んでいない場合はnull
+	 */
+	public Date getLoadedAt() {
+		return snapshot.loadedAt;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	private static void add(Map<Integer, List<String>> addressMap, int zipCode, String address) {
+		String normalized = address.endsWith(NO_TOWN) ? address.substring(0, address.length() - NO_TOWN.length())
+				: address;
+		int parenthesis = normalized.indexOf('（');
+		if (parenthesis >= 0) {
+			normalized = normalized.substring(0, parenthesis);
+		}
+		List<String> addressList = addressMap.computeIfAbsent(zipCode, key -> new ArrayList<>(1));
+		if (!addressList.contains(normalized)) {
+			addressList.add(normalized);
+		}
+	}
+
+	/**
+	 * ある時点の索引.
+	 * 郵便番号の昇順に並べた配列と、各郵便番号の住所がaddressesのどこからどこまでかを表すoffsetsを持ちます。
+	 */
+	private static class Snapshot {
+		/** 郵便番号の昇順に並べた郵便番号 */
+		private final int[] zipCodes;
+		/** zipCodes[i]の住所はaddresses[offsets[i]]からaddresses[offsets[i + 1] - 1]まで */
+		private final int[] offsets;
+		/** 住所 */
+		private final String[] addresses;
+		/** 読み込んだ日時 */
+		private final Date loadedAt;
+
+		private Snapshot(int[] zipCodes, int[] offsets, String[] addresses, Date loadedAt) {
+			this.zipCodes = zipCodes;
+			this.offsets = offsets;
+			this.addresses = addresses;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package jp.co.sample.emp_management.configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConnectionHoldTimeConfigurationTest {
+	private SimpleMeterRegistry meterRegistry;
+	private HikariDataSource hikariDataSource;
+
+	@Before
+	public void setUp() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenAnswer(invocation -> {
+			Connection connection = mock(Connection.class);
+			when(connection.isValid(anyInt())).thenReturn(true);
+			return connection;
+		});
+		hikariDataSource = new HikariDataSource();
+		hikariDataSource.setPoolName("test");
+		hikariDataSource.setDataSource(dataSource);
+	}
+
+	@After
+	public void tearDown() {
+		hikariDataSource.close();
+	}
+
+	@Test
+	public void testPostProcessHikariDataSource() throws Exception {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("meterRegistry", meterRegistry);
+		BeanPostProcessor postProcessor = ConnectionHoldTimeConfiguration
+				.connectionHoldTimeMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+
+		Object bean = postProcessor.postProcessAfterInitialization(hikariDataSource, "dataSource");
+		assertThat("HikariDataSourceを置き換えています", bean, is(sameInstance(hikariDataSource)));
+
+		ConnectionHoldTimeMetricsTrackerFactory.startRecording();
+		hikariDataSource.getConnection().close();
+		ConnectionHoldTimeMetricsTrackerFactory.stopRecording();
+
+		assertThat("接続の取得待ち時間が登録されていません",
+				meterRegistry.find("hikaricp.connections.acquire").tag("pool", "test").timer(), is(notNullValue()));
+		assertThat("接続の保持時間が記録されていません",
+				meterRegistry.get("jdbc.connections.hold").tag("pool", "test").timer().count(), is(1L));
+	}
+}
@@ -0,0 +1,58 @@
+package jp.co.sample.emp_management.configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * プライマリとレプリカのプールにそれぞれのspring.datasource.hikari相当の設定が適用され、終了時に閉じられることを確認するテスト.
+ */
+public class ReadReplicaConfigurationTest {
+
+	@Configuration
+	@EnableConfigurationProperties(DataSourceProperties.class)
+	static class TestConfiguration {
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class))
+			.withUserConfiguration(TestConfiguration.class, ReadReplicaConfiguration.class)
+			.withPropertyValues("spring.datasource.url=jdbc:postgresql://localhost:5432/student",
+					"spring.datasource.hikari.maximum-pool-size=3",
+					"spring.datasource.hikari.connection-timeout=1500",
+					"employee.datasource.replica.url=jdbc:postgresql://localhost:5433/student",
+					"employee.datasource.replica.hikari.maximum-pool-size=4");
+
+	@Test
+	public void testHikariProperties() {
+		HikariDataSource[] pools = new HikariDataSource[2];
+		contextRunner.run(context -> {
+			pools[0] = context.getBean("primaryDataSource", HikariDataSource.class);
+			pools[1] = context.getBean("replicaDataSource", HikariDataSource.class);
+			assertThat("プライマリにspring.datasource.hikariが適用されていません", pools[0].getMaximumPoolSize(), is(3));
+			assertThat("プライマリにspring.datasource.hikariが適用されていません", pools[0].getConnectionTimeout(), is(1500L));
+			assertThat("プールの名前が変わっています", pools[0].getPoolName(), is(ReadReplicaRoutingDataSource.PRIMARY));
+			assertThat("レプリカに設定が適用されていません", pools[1].getMaximumPoolSize(), is(4));
+			assertThat("レプリカが読み取り専用ではありません", pools[1].isReadOnly(), is(true));
+		});
+		assertThat("プライマリのプールが閉じられていません", pools[0].isClosed(), is(true));
+		assertThat("レプリカのプールが閉じられていません", pools[1].isClosed(), is(true));
+	}
+}
@@ -0,0 +1,102 @@
+package jp.co.sample.emp_management.configuration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * トランザクションが読み取り専用かどうかで、プライマリとレプリカに振り分けることを確認するテスト.
+ */
+public class ReadReplicaRoutingDataSourceTest {
+	private DataSource primary;
+	private DataSource replica;
+	private ReplicaLagMonitor replicaLagMonitor;
+	private JdbcTemplate jdbcTemplate;
+	private DataSourceTransactionManager transactionManager;
+
+	@Before
+	public void setUp() throws SQLException {
+		primary = mock(DataSource.class);
+		when(primary.getConnection()).thenAnswer(invocation -> connection());
+		replica = mock(DataSource.class);
+		when(replica.getConnection()).thenAnswer(invocation -> connection());
+		replicaLagMonitor = mock(ReplicaLagMonitor.class);
+
+		Map<Object, Object> targetDataSources = new HashMap<>();
+		targetDataSources.put(ReadReplicaRoutingDataSource.PRIMARY, primary);
+		targetDataSources.put(ReadReplicaRoutingDataSource.REPLICA, replica);
+		ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(replicaLagMonitor);
+		routingDataSource.setTargetDataSources(targetDataSources);
+		routingDataSource.setDefaultTargetDataSource(primary);
+		routingDataSource.afterPropertiesSet();
+		LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+		proxy.setTargetDataSource(routingDataSource);
+		proxy.setDefaultAutoCommit(true);
+		proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		proxy.afterPropertiesSet();
+
+		jdbcTemplate = new JdbcTemplate(proxy);
+		transactionManager = new DataSourceTransactionManager(proxy);
+	}
+
+	@Test
+	public void testReadOnlyGoesToReplica() throws SQLException {
+		when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+
+		execute(true);
+
+		verify(replica).getConnection();
+		verify(primary, never()).getConnection();
+	}
+
+	@Test
+	public void testReadWriteGoesToPrimary() throws SQLException {
+		when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+
+		execute(false);
+
+		verify(primary).getConnection();
+		verify(replica, never()).getConnection();
+	}
+
+	@Test
+	public void testLaggingReplicaFallsBackToPrimary() throws SQLException {
+		when(replicaLagMonitor.isReplicaUsable()).thenReturn(false);
+
+		execute(true);
+
+		verify(primary).getConnection();
+		verify(replica, never()).getConnection();
+	}
+
+	private static Connection connection() throws SQLException {
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement()).thenReturn(mock(Statement.class));
+		return connection;
+	}
+
+	private void execute(boolean readOnly) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(readOnly);
+		transactionTemplate.execute(status -> {
+			jdbcTemplate.execute("SELECT 1");
+			return null;
+		});
+	}
+}
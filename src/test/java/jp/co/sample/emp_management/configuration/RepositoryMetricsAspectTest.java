@@ -0,0 +1,100 @@
+package jp.co.sample.emp_management.configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.repository.AdministratorRepository;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+public class RepositoryMetricsAspectTest {
+	private SimpleMeterRegistry meterRegistry;
+	private NamedParameterJdbcTemplate template;
+	private EmployeeRepository employeeRepository;
+	private AdministratorRepository administratorRepository;
+
+	@Before
+	public void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		template = mock(NamedParameterJdbcTemplate.class);
+		employeeRepository = proxy(new EmployeeRepository());
+		administratorRepository = proxy(new AdministratorRepository());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMeasure() {
+		when(template.query(anyString(), any(RowMapper.class)))
+				.thenReturn(Arrays.asList(new Employee(), new Employee()));
+		when(template.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+				.thenReturn(Arrays.asList(new EmployeeSummary()));
+
+		employeeRepository.findAll();
+		employeeRepository.findAll(10, 0);
+
+		assertThat("オーバーロードしたメソッドの実行時間が区別されていません", meterRegistry.get("repository.query")
+				.tag("class", "EmployeeRepository").tag("method", "findAll()").timer().count(), is(1L));
+		assertThat("オーバーロードしたメソッドの実行時間が区別されていません", meterRegistry.get("repository.query")
+				.tag("class", "EmployeeRepository").tag("method", "findAll(int,int)").timer().count(), is(1L));
+		assertThat("リストの行数が記録されていません", meterRegistry.get("repository.query.rows")
+				.tag("method", "findAll()").summary().totalAmount(), is(2.0));
+		assertThat("リストの行数が記録されていません", meterRegistry.get("repository.query.rows")
+				.tag("method", "findAll(int,int)").summary().totalAmount(), is(1.0));
+	}
+
+	@Test
+	public void testMeasureCount() {
+		when(template.queryForObject(anyString(), nullable(SqlParameterSource.class), eq(Integer.class))).thenReturn(100);
+
+		employeeRepository.getSize();
+
+		assertThat("実行時間が記録されていません", meterRegistry.get("repository.query")
+				.tag("method", "getSize()").timer().count(), is(1L));
+		assertThat("件数を行数として記録しています", meterRegistry.get("repository.query.rows")
+				.tag("method", "getSize()").summary().count(), is(0L));
+	}
+
+	@Test
+	public void testMeasureError() {
+		when(template.update(anyString(), any(SqlParameterSource.class))).thenThrow(new QueryTimeoutException("timeout"));
+
+		try {
+			administratorRepository.updatePassword(1, "hashed");
+			fail("例外が伝わっていません");
+		} catch (QueryTimeoutException e) {
+			assertThat("エラー数が記録されていません", meterRegistry.get("repository.query.errors")
+					.tag("method", "updatePassword(Integer,String)").tag("exception", "QueryTimeoutException")
+					.counter().count(), is(1.0));
+			assertThat("失敗した場合も実行時間を記録していません", meterRegistry.get("repository.query")
+					.tag("method", "updatePassword(Integer,String)").timer().count(), is(1L));
+		}
+	}
+
+	private <T> T proxy(T target) {
+		ReflectionTestUtils.setField(target, "template", template);
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(new RepositoryMetricsAspect(meterRegistry));
+		return proxyFactory.getProxy();
+	}
+}
@@ -0,0 +1,68 @@
+package jp.co.sample.emp_management.configuration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SecurityConfigurationTest.TestConfiguration.class, properties = {
+		"spring.security.user.name=actuator",
+		"spring.security.user.password=secret",
+		"employee.password.bcrypt.strength=4",
+		"management.endpoints.web.exposure.include=health,prometheus" })
+@AutoConfigureMockMvc
+public class SecurityConfigurationTest {
+
+	@Configuration
+	@EnableAutoConfiguration(exclude = DataSourceAutoConfiguration.class)
+	@Import(SecurityConfiguration.class)
+	static class TestConfiguration {
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	public void testPrometheusWithCredentials() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, basic("actuator", "secret")))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void testPrometheusWithWrongPassword() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, basic("actuator", "wrong")))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testPrometheusAnonymous() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testHealthAnonymous() throws Exception {
+		mockMvc.perform(get("/actuator/health"))
+				.andExpect(status().isOk());
+	}
+
+	private static String basic(String username, String password) {
+		return "Basic " + Base64.getEncoder()
+				.encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+	}
+}
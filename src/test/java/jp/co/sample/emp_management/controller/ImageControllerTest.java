@@ -0,0 +1,101 @@
+package jp.co.sample.emp_management.controller;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import jp.co.sample.emp_management.service.ImageStore;
+import jp.co.sample.emp_management.service.ImageUploadService;
+import jp.co.sample.emp_management.service.ThumbnailService;
+
+public class ImageControllerTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private MockMvc mockMvc;
+
+	private String key;
+
+	private String etag;
+
+	@Before
+	public void setUp() throws Exception {
+		ImageStore imageStore = new ImageStore(temporaryFolder.getRoot().toPath());
+		key = imageStore.save(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.US_ASCII)), "png");
+		etag = "\"" + key.substring(0, 64) + "\"";
+
+		ImageController imageController = new ImageController();
+		ReflectionTestUtils.setField(imageController, "imageStore", imageStore);
+		ReflectionTestUtils.setField(imageController, "thumbnailService", mock(ThumbnailService.class));
+		ImageUploadService imageUploadService = new ImageUploadService(16, 1);
+		ReflectionTestUtils.setField(imageUploadService, "imageStore", imageStore);
+		ReflectionTestUtils.setField(imageUploadService, "thumbnailService", mock(ThumbnailService.class));
+		ReflectionTestUtils.setField(imageController, "imageUploadService", imageUploadService);
+		mockMvc = MockMvcBuilders.standaloneSetup(imageController).build();
+	}
+
+	@Test
+	public void testShow() throws Exception {
+		mockMvc.perform(get("/image/" + key))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+				.andExpect(header().string("Content-Type", "image/png"))
+				.andExpect(content().string("0123456789"));
+	}
+
+	@Test
+	public void testShowNotModified() throws Exception {
+		mockMvc.perform(get("/image/" + key).header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	public void testShowRange() throws Exception {
+		mockMvc.perform(get("/image/" + key).header("Range", "bytes=2-5"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 2-5/10"))
+				.andExpect(content().string("2345"));
+		mockMvc.perform(get("/image/" + key).header("Range", "bytes=20-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string("Content-Range", "bytes */10"));
+	}
+
+	@Test
+	public void testShowNotFound() throws Exception {
+		mockMvc.perform(get("/image/" + key.replace('a', 'b').replace('0', '1')))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/image/..%2F..%2Fetc%2Fpasswd"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testUpload() throws Exception {
+		byte[] png = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3 };
+		mockMvc.perform(post("/image/upload").content(png).contentType("image/png"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.key").value(endsWith(".png")));
+		mockMvc.perform(post("/image/upload").content("GIF89a".getBytes(StandardCharsets.US_ASCII)))
+				.andExpect(status().isUnsupportedMediaType());
+		mockMvc.perform(post("/image/upload").content(new byte[17]))
+				.andExpect(status().isPayloadTooLarge());
+	}
+}
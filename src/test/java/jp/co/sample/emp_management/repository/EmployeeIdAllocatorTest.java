@@ -0,0 +1,65 @@
+package jp.co.sample.emp_management.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class EmployeeIdAllocatorTest {
+
+	private NamedParameterJdbcTemplate template;
+
+	private EmployeeIdAllocator employeeIdAllocator;
+
+	@Before
+	public void setUp() {
+		AtomicLong sequence = new AtomicLong(101);
+		template = mock(NamedParameterJdbcTemplate.class);
+		when(template.queryForObject(contains("increment_by"), any(SqlParameterSource.class), eq(Integer.class)))
+				.thenReturn(50);
+		when(template.queryForObject(contains("nextval"), any(SqlParameterSource.class), eq(Long.class)))
+				.thenAnswer(invocation -> sequence.getAndAdd(50));
+		employeeIdAllocator = new EmployeeIdAllocator();
+		ReflectionTestUtils.setField(employeeIdAllocator, "template", template);
+	}
+
+	@Test
+	public void testNextId() {
+		for (int i = 0; i < 50; i++) {
+			assertThat("確保した範囲から順に採番されていません", employeeIdAllocator.nextId(), is(101 + i));
+		}
+		assertThat("範囲を使い切った後に次の範囲が確保されていません", employeeIdAllocator.nextId(), is(151));
+		verify(template, times(2)).queryForObject(contains("nextval"), any(SqlParameterSource.class), eq(Long.class));
+	}
+
+	@Test
+	public void testNextIdConcurrently() throws Exception {
+		Set<Integer> idSet = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 1000; i++) {
+			executor.execute(() -> idSet.add(employeeIdAllocator.nextId()));
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		assertThat("同じIDが重複して採番されています", idSet.size(), is(1000));
+		verify(template, times(20)).queryForObject(contains("nextval"), any(SqlParameterSource.class), eq(Long.class));
+	}
+}
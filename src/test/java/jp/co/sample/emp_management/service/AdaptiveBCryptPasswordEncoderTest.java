@@ -0,0 +1,40 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveBCryptPasswordEncoderTest {
+
+	@Test
+	public void testChooseStrength() {
+		long eightMillis = TimeUnit.MILLISECONDS.toNanos(8);
+		assertThat("目標の時間に最も近いコストになっていません",
+				AdaptiveBCryptPasswordEncoder.chooseStrength(eightMillis, 128, 4, 31), is(12));
+		assertThat("目標の時間に最も近いコストになっていません",
+				AdaptiveBCryptPasswordEncoder.chooseStrength(eightMillis, 100, 4, 31), is(12));
+		assertThat("最小のコストを下回っています",
+				AdaptiveBCryptPasswordEncoder.chooseStrength(eightMillis, 1, 10, 16), is(10));
+		assertThat("最大のコストを上回っています",
+				AdaptiveBCryptPasswordEncoder.chooseStrength(eightMillis, 100_000, 10, 16), is(16));
+	}
+
+	@Test
+	public void testUpgradeEncoding() {
+		AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(5);
+		String encoded = encoder.encode("password");
+
+		assertThat("照合できません", encoder.matches("password", encoded), is(true));
+		assertThat("同じコストのハッシュ値をハッシュ化し直そうとしています", encoder.upgradeEncoding(encoded), is(false));
+		assertThat("コストの異なるハッシュ値でも照合できません",
+				new AdaptiveBCryptPasswordEncoder(4).matches("password", encoded), is(true));
+		assertThat("コストの高いハッシュ値をハッシュ化し直そうとしています",
+				new AdaptiveBCryptPasswordEncoder(4).upgradeEncoding(encoded), is(false));
+		assertThat("コストの低いハッシュ値をハッシュ化し直そうとしていません",
+				new AdaptiveBCryptPasswordEncoder(6).upgradeEncoding(encoded), is(true));
+		assertThat("BCryptでないハッシュ値をハッシュ化し直そうとしていません", encoder.upgradeEncoding("plain"), is(true));
+	}
+}
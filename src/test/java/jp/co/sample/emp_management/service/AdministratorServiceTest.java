@@ -0,0 +1,199 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.sample.emp_management.configuration.ConnectionHoldTimeMetricsTrackerFactory;
+import jp.co.sample.emp_management.domain.Administrator;
+import jp.co.sample.emp_management.repository.AdministratorRepository;
+
+/**
+ * パスワードのハッシュ化と照合の間、データベース接続を保持していないことと、
+ * 失敗が続いたメールアドレスのログインを照合せずに拒否することを確認するテスト.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration
+public class AdministratorServiceTest {
+	/** ハッシュ化と照合にかかる時間(ミリ秒) */
+	private static final long HASH_MILLIS = 100;
+	/** ログインを拒否するまでの失敗回数 */
+	private static final int MAX_FAILURES = 3;
+	/** 接続元のアドレス */
+	private static final String CLIENT_ADDRESS = "192.0.2.1";
+
+	@Configuration
+	@EnableTransactionManagement
+	static class Config {
+		@Bean
+		public DataSource dataSource() throws Exception {
+			DataSource dataSource = mock(DataSource.class);
+			when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+			HikariDataSource pool = new HikariDataSource();
+			pool.setDataSource(dataSource);
+			pool.setMetricsTrackerFactory(new ConnectionHoldTimeMetricsTrackerFactory(new SimpleMeterRegistry()));
+			return pool;
+		}
+
+		@Bean
+		public PlatformTransactionManager transactionManager(DataSource dataSource) {
+			return new DataSourceTransactionManager(dataSource);
+		}
+
+		@Bean
+		public PasswordHashingExecutor passwordHashingExecutor() {
+			return new PasswordHashingExecutor(2, 2, 5000, new SimpleMeterRegistry());
+		}
+
+		@Bean
+		public LoginAttemptThrottle loginAttemptThrottle() {
+			return new LoginAttemptThrottle(MAX_FAILURES, 300, new SimpleMeterRegistry());
+		}
+
+		@Bean
+		public AdministratorService administratorService() {
+			return new AdministratorService();
+		}
+	}
+
+	@Autowired
+	private DataSource dataSource;
+
+	@MockBean
+	private AdministratorRepository administratorRepository;
+
+	@MockBean
+	private AdaptiveBCryptPasswordEncoder passwordEncoder;
+
+	@MockBean
+	private AdministratorMailAddressFilter administratorMailAddressFilter;
+
+	@Autowired
+	private AdministratorService administratorService;
+
+	@Before
+	public void setUp() {
+		// JdbcTemplateと同じく、SQLの実行中だけ接続を取得する
+		when(administratorRepository.findByMailAddress(anyString())).thenAnswer(invocation -> {
+			Connection connection = DataSourceUtils.getConnection(dataSource);
+			DataSourceUtils.releaseConnection(connection, dataSource);
+			Administrator administrator = new Administrator();
+			administrator.setMailAddress(invocation.getArgument(0));
+			administrator.setPassword("hashed");
+			return administrator;
+		});
+		doAnswer(invocation -> {
+			Connection connection = DataSourceUtils.getConnection(dataSource);
+			DataSourceUtils.releaseConnection(connection, dataSource);
+			return null;
+		}).when(administratorRepository).insert(any());
+		when(passwordEncoder.matches(anyString(), anyString())).thenAnswer(invocation -> {
+			assertNoConnectionHeld();
+			return true;
+		});
+		when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> {
+			assertNoConnectionHeld();
+			return "hashed";
+		});
+	}
+
+	@Test
+	public void testLogin() {
+		ConnectionHoldTimeMetricsTrackerFactory.startRecording();
+		Administrator administrator = administratorService.login("admin@example.com", "password", CLIENT_ADDRESS);
+		long holdNanos = ConnectionHoldTimeMetricsTrackerFactory.stopRecording();
+
+		assertThat("ログインに失敗しています", administrator, is(notNullValue()));
+		assertThat("パスワードの照合中に接続を保持しています", holdNanos, is(lessThan(TimeUnit.MILLISECONDS.toNanos(HASH_MILLIS))));
+	}
+
+	@Test
+	public void testLoginThrottled() {
+		doReturn(false).when(passwordEncoder).matches(eq("wrong"), anyString());
+		for (int i = 0; i < MAX_FAILURES; i++) {
+			assertThat("誤ったパスワードでログインできています",
+					administratorService.login("Throttled@example.com", "wrong", CLIENT_ADDRESS), is(nullValue()));
+		}
+
+		try {
+			administratorService.login("throttled@example.com", "password", CLIENT_ADDRESS);
+			fail("失敗が続いたメールアドレスでログインできています");
+		} catch (LoginThrottledException e) {
+			assertThat("再試行までの秒数が不正です", e.getRetryAfterSeconds(), is(300L));
+		}
+		verify(passwordEncoder, times(MAX_FAILURES)).matches(anyString(), anyString());
+		assertThat("他のメールアドレスのログインまで拒否しています",
+				administratorService.login("other@example.com", "password", CLIENT_ADDRESS), is(notNullValue()));
+		assertThat("他の接続元からのログインまで拒否しています",
+				administratorService.login("throttled@example.com", "password", "192.0.2.2"), is(notNullValue()));
+	}
+
+	@Test
+	public void testLoginRehash() {
+		doReturn(true).when(passwordEncoder).upgradeEncoding("hashed");
+
+		Administrator administrator = administratorService.login("rehash@example.com", "password", CLIENT_ADDRESS);
+
+		verify(passwordEncoder).encode("password");
+		verify(administratorRepository).updatePassword(administrator.getId(), "hashed");
+	}
+
+	@Test
+	public void testInsert() {
+		Administrator administrator = new Administrator();
+		administrator.setPassword("password");
+
+		ConnectionHoldTimeMetricsTrackerFactory.startRecording();
+		administratorService.insert(administrator);
+		long holdNanos = ConnectionHoldTimeMetricsTrackerFactory.stopRecording();
+
+		assertThat("パスワードがハッシュ化されていません", administrator.getPassword(), is("hashed"));
+		assertThat("パスワードのハッシュ化中に接続を保持しています", holdNanos, is(lessThan(TimeUnit.MILLISECONDS.toNanos(HASH_MILLIS))));
+	}
+
+	/**
+	 * 接続を保持していないことを確認し、ハッシュ化にかかる時間だけ待ちます.
+	 */
+	private void assertNoConnectionHeld() throws InterruptedException {
+		assertThat("トランザクション中にパスワードを処理しています",
+				TransactionSynchronizationManager.isActualTransactionActive(), is(false));
+		assertThat("接続を保持したままパスワードを処理しています",
+				TransactionSynchronizationManager.hasResource(dataSource), is(false));
+		Thread.sleep(HASH_MILLIS);
+	}
+}
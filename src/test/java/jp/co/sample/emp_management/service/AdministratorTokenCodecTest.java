@@ -0,0 +1,71 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+public class AdministratorTokenCodecTest {
+	private static final String OLD_KEY = "old=" + "b2xkLWtleS1vbGQta2V5LW9sZC1rZXktb2xkLWtleS0=";
+	private static final String NEW_KEY = "new=" + "bmV3LWtleS1uZXcta2V5LW5ldy1rZXktbmV3LWtleS0=";
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+	@Test
+	public void testDecode() {
+		AdministratorTokenCodec codec = new AdministratorTokenCodec(NEW_KEY, "new", 3600, CLOCK);
+		String token = codec.encode(administrator());
+
+		AdministratorTokenCodec.Token decoded = codec.decode(token);
+		assertThat("トークンを検証できません", decoded, is(notNullValue()));
+		assertThat("IDが一致しません", decoded.getAdministrator().getId(), is(1));
+		assertThat("名前が一致しません", decoded.getAdministrator().getName(), is("山田 太郎"));
+		assertThat("作り直す必要のないトークンです", codec.needsRenewal(decoded), is(false));
+	}
+
+	@Test
+	public void testDecodeTampered() {
+		AdministratorTokenCodec codec = new AdministratorTokenCodec(NEW_KEY, "new", 3600, CLOCK);
+		String token = codec.encode(administrator());
+		String tampered = token.replaceFirst("\\.1\\.", ".2.");
+
+		assertThat("改ざんされたトークンを受け付けています", codec.decode(tampered), is(nullValue()));
+		assertThat("不正な形式のトークンを受け付けています", codec.decode("abc"), is(nullValue()));
+	}
+
+	@Test
+	public void testDecodeExpired() {
+		String token = new AdministratorTokenCodec(NEW_KEY, "new", 3600, CLOCK).encode(administrator());
+		AdministratorTokenCodec later = new AdministratorTokenCodec(NEW_KEY, "new", 3600,
+				Clock.offset(CLOCK, Duration.ofSeconds(3600)));
+
+		assertThat("期限切れのトークンを受け付けています", later.decode(token), is(nullValue()));
+	}
+
+	@Test
+	public void testRotation() {
+		String oldToken = new AdministratorTokenCodec(OLD_KEY, "old", 3600, CLOCK).encode(administrator());
+		AdministratorTokenCodec rotated = new AdministratorTokenCodec(OLD_KEY + "," + NEW_KEY, "new", 3600, CLOCK);
+
+		AdministratorTokenCodec.Token decoded = rotated.decode(oldToken);
+		assertThat("古い鍵のトークンを検証できません", decoded, is(notNullValue()));
+		assertThat("古い鍵のトークンを作り直そうとしていません", rotated.needsRenewal(decoded), is(true));
+		assertThat("削除した鍵のトークンを受け付けています",
+				new AdministratorTokenCodec(NEW_KEY, "new", 3600, CLOCK).decode(oldToken), is(nullValue()));
+	}
+
+	private static Administrator administrator() {
+		Administrator administrator = new Administrator();
+		administrator.setId(1);
+		administrator.setName("山田 太郎");
+		return administrator;
+	}
+}
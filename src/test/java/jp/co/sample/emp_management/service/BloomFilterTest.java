@@ -0,0 +1,29 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+	@Test
+	public void testMightContain() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("user" + i + "@example.com");
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat("追加した文字列を含まないと判定しています", filter.mightContain("user" + i + "@example.com"), is(true));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (filter.mightContain("other" + i + "@example.com")) {
+				falsePositives++;
+			}
+		}
+		assertThat("誤判定が多すぎます", falsePositives, is(lessThan(200)));
+	}
+}
@@ -0,0 +1,30 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+	@Test
+	public void testReadRecord() throws IOException {
+		String csv = "\uFEFFid,name\r\n1,\"山田,太郎\"\r\n2,\"改行\r\nを含む\"\r\n3,\"\"\"引用\"\"\"\n4,";
+		try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+			assertThat("BOMが除去されていません", reader.readRecord(), is(Arrays.asList("id", "name")));
+			assertThat("区切り文字を含む値が読み込めていません", reader.readRecord(), is(Arrays.asList("1", "山田,太郎")));
+			assertThat("行番号が正しくありません", reader.getRecordLine(), is(2));
+			assertThat("改行を含む値が読み込めていません", reader.readRecord(), is(Arrays.asList("2", "改行\r\nを含む")));
+			assertThat("行番号が正しくありません", reader.getRecordLine(), is(3));
+			assertThat("ダブルクォートを含む値が読み込めていません", reader.readRecord(), is(Arrays.asList("3", "\"引用\"")));
+			assertThat("改行を含む値の後の行番号が正しくありません", reader.getRecordLine(), is(5));
+			assertThat("末尾の空の値が読み込めていません", reader.readRecord(), is(Arrays.asList("4", "")));
+			assertThat("終端でnullが返されていません", reader.readRecord(), is(nullValue()));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+public class EmployeeNameIndexTest {
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private EmployeeNameIndex employeeNameIndex;
+
+	@Before
+	public void setUp() {
+		EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+		when(employeeRepository.findAllNames()).thenReturn(Arrays.asList(
+				employee(1, "山田太郎"), employee(2, "山田花子"), employee(3, "ヤマダ ジロウ"), employee(4, "やまもと"),
+				employee(5, "Smith")));
+		meterRegistry = new SimpleMeterRegistry();
+		employeeNameIndex = new EmployeeNameIndex(meterRegistry);
+		ReflectionTestUtils.setField(employeeNameIndex, "employeeRepository", employeeRepository);
+		employeeNameIndex.rebuild();
+	}
+
+	@Test
+	public void testFindNamesByPrefix() {
+		assertThat("漢字の前方一致で検索されていません", employeeNameIndex.findNamesByPrefix("山田", 10),
+				is(Arrays.asList("山田太郎", "山田花子")));
+		assertThat("半角カナがカタカナとして検索されていません", employeeNameIndex.findNamesByPrefix("ﾔﾏﾀﾞ", 10),
+				is(Arrays.asList("ヤマダ ジロウ")));
+		assertThat("ひらがなとカタカナが同一視されていません", employeeNameIndex.findNamesByPrefix("ヤマ", 10),
+				is(Arrays.asList("ヤマダ ジロウ", "やまもと")));
+		assertThat("全角英字と大文字小文字が同一視されていません", employeeNameIndex.findNamesByPrefix("ｓｍ", 10),
+				is(Arrays.asList("Smith")));
+		assertThat("件数が制限されていません", employeeNameIndex.findNamesByPrefix("山", 1).size(), is(1));
+		assertThat("一致しない名前が返されています", employeeNameIndex.findNamesByPrefix("佐藤", 10),
+				is(Collections.<String>emptyList()));
+	}
+
+	@Test
+	public void testAdd() {
+		employeeNameIndex.add(6, "山田三郎");
+		employeeNameIndex.add(6, "山田三郎");
+		assertThat("追加した従業員が検索されていません", employeeNameIndex.findNamesByPrefix("山田三", 10),
+				is(Arrays.asList("山田三郎")));
+		assertThat("同じ従業員が重複して登録されています", employeeNameIndex.size(), is(6));
+	}
+
+	@Test
+	public void testMetrics() {
+		employeeNameIndex.findNamesByPrefix("山田", 10);
+		employeeNameIndex.findNamesByPrefix("佐藤", 10);
+		assertThat("ヒット数が記録されていません",
+				meterRegistry.get("employee.name.index.lookups").tag("result", "hit").counter().count(), is(1.0));
+		assertThat("ミス数が記録されていません",
+				meterRegistry.get("employee.name.index.lookups").tag("result", "miss").counter().count(), is(1.0));
+		assertThat("構築時間が記録されていません",
+				meterRegistry.get("employee.name.index.rebuild").timer().count(), is(1L));
+	}
+
+	private static Employee employee(int id, String name) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName(name);
+		return employee;
+	}
+}
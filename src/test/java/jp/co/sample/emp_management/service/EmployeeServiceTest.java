@@ -0,0 +1,101 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import jp.co.sample.emp_management.domain.EmployeeSearchResult;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 名前検索と、見つからなかった場合の一覧の取得を1つのトランザクションで行うことと、
+ * 未登録と分かるメールアドレスの確認でデータベースに問い合わせないことを確認するテスト.
+ */
+public class EmployeeServiceTest {
+	private EmployeeService employeeService;
+	private PlatformTransactionManager transactionManager;
+	private EmployeeRepository employeeRepository;
+	private EmployeeNameSearcher employeeNameSearcher;
+	private EmployeeMailAddressFilter employeeMailAddressFilter;
+
+	@Before
+	public void setUp() {
+		transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		employeeRepository = mock(EmployeeRepository.class);
+		employeeNameSearcher = mock(EmployeeNameSearcher.class);
+		EmployeeCounter employeeCounter = mock(EmployeeCounter.class);
+		when(employeeCounter.getCount()).thenReturn(1);
+		employeeMailAddressFilter = mock(EmployeeMailAddressFilter.class);
+
+		employeeService = new EmployeeService();
+		ReflectionTestUtils.setField(employeeService, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(employeeService, "employeeRepository", employeeRepository);
+		ReflectionTestUtils.setField(employeeService, "employeeNameSearcher", employeeNameSearcher);
+		ReflectionTestUtils.setField(employeeService, "employeeCounter", employeeCounter);
+		ReflectionTestUtils.setField(employeeService, "employeeMailAddressFilter", employeeMailAddressFilter);
+		ReflectionTestUtils.setField(employeeService, "queryTimeoutMillis", 1500L);
+	}
+
+	@Test
+	public void testSearchOrShowListFound() {
+		List<EmployeeSummary> found = Collections.singletonList(new EmployeeSummary(1, "山田太郎", null, 0));
+		when(employeeNameSearcher.search("山田", 10, 0)).thenReturn(new Page<>(found, 1, 10));
+
+		EmployeeSearchResult result = employeeService.searchOrShowList("山田", 1, null, null);
+
+		assertThat("見つかったことになっていません", result.isFound(), is(true));
+		assertThat("検索結果が返っていません", result.getPage().getContent(), is(found));
+		verify(employeeRepository, never()).findAll(anyInt(), anyInt());
+	}
+
+	@Test
+	public void testSearchOrShowListNotFound() {
+		List<EmployeeSummary> all = Collections.singletonList(new EmployeeSummary(1, "山田太郎", null, 0));
+		when(employeeNameSearcher.search("佐藤", 10, 0)).thenReturn(new Page<>(Collections.emptyList(), 0, 10));
+		when(employeeRepository.findAll(10, 0)).thenReturn(all);
+
+		EmployeeSearchResult result = employeeService.searchOrShowList("佐藤", 1, null, null);
+
+		assertThat("見つからなかったことになっていません", result.isFound(), is(false));
+		assertThat("一覧が返っていません", result.getPage().getContent(), is(all));
+
+		ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+		verify(transactionManager, times(1)).getTransaction(definition.capture());
+		assertThat("検索と一覧の取得が1つのトランザクションではありません", definition.getAllValues().size(), is(1));
+		assertThat("読み取り専用ではありません", definition.getValue().isReadOnly(), is(true));
+		assertThat("タイムアウトが秒単位で切り上げられていません", definition.getValue().getTimeout(), is(2));
+	}
+
+	@Test
+	public void testIsMailAddressRegistered() {
+		when(employeeMailAddressFilter.mightBeRegistered("new@example.com")).thenReturn(false);
+		when(employeeMailAddressFilter.mightBeRegistered("taken@example.com")).thenReturn(true);
+		when(employeeRepository.existsByMailAddress("taken@example.com")).thenReturn(true);
+
+		assertThat("未登録のメールアドレスが登録済みになっています",
+				employeeService.isMailAddressRegistered("new@example.com"), is(false));
+		verify(employeeRepository, never()).existsByMailAddress("new@example.com");
+		assertThat("登録済みのメールアドレスが未登録になっています",
+				employeeService.isMailAddressRegistered("taken@example.com"), is(true));
+	}
+}
@@ -0,0 +1,65 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ImageStore imageStore;
+
+	@Before
+	public void setUp() {
+		imageStore = new ImageStore(temporaryFolder.getRoot().toPath());
+	}
+
+	@Test
+	public void testSave() throws IOException {
+		String key = imageStore.save(input("abc"), "PNG");
+		assertThat("キーがSHA-256ハッシュ値と拡張子になっていません", key,
+				is("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad.png"));
+		Path path = imageStore.resolve(key);
+		assertThat("ハッシュ値の先頭で分けたディレクトリに保存されていません",
+				temporaryFolder.getRoot().toPath().relativize(path).toString(),
+				is("ba/78/" + key));
+		assertThat("内容が保存されていません", new String(Files.readAllBytes(path), StandardCharsets.UTF_8), is("abc"));
+	}
+
+	@Test
+	public void testSaveDuplicate() throws IOException {
+		String key1 = imageStore.save(input("abc"), "png");
+		String key2 = imageStore.save(input("abc"), "png");
+		assertThat("同じ内容の画像に同じキーが返されていません", key2, is(key1));
+		try (Stream<Path> files = Files.list(imageStore.resolve(key1).getParent())) {
+			assertThat("同じ内容の画像が重複して保存されています", files.count(), is(1L));
+		}
+		try (Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath().resolve("tmp"))) {
+			assertThat("一時ファイルが残っています", files.count(), is(0L));
+		}
+	}
+
+	@Test
+	public void testResolve() {
+		assertThat("不正なキーでパスが返されています", imageStore.resolve("../../etc/passwd"), is(nullValue()));
+		assertThat("以前のファイル名がキーとして扱われています", imageStore.isKey("e1.png"), is(false));
+	}
+
+	private static ByteArrayInputStream input(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
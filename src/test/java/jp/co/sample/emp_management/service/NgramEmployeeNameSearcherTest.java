@@ -0,0 +1,153 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeCursor;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.Page;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+public class NgramEmployeeNameSearcherTest {
+
+	private EmployeeRepository employeeRepository;
+
+	private List<Employee> employeeList;
+
+	private NgramEmployeeNameSearcher searcher;
+
+	@Before
+	public void setUp() {
+		employeeList = new ArrayList<>(Arrays.asList(
+				employee(1, "山田太郎", 2012, 10), employee(2, "山田花子", 2013, 0), employee(3, "鈴木一郎", 2004, 9),
+				employee(4, "田中太郎", 2013, 0), employee(5, "中田", 2010, 0)));
+		employeeRepository = mock(EmployeeRepository.class);
+		when(employeeRepository.findAllSearchKeys()).thenReturn(new ArrayList<>(employeeList));
+		when(employeeRepository.findByIds(anyList())).thenAnswer(invocation -> {
+			List<Integer> idList = invocation.getArgument(0);
+			List<EmployeeSummary> result = new ArrayList<>();
+			for (Integer id : idList) {
+				Employee employee = employeeList.get(id - 1);
+				result.add(new EmployeeSummary(employee.getId(), employee.getName(), employee.getHireDate(), 0));
+			}
+			return result;
+		});
+		searcher = new NgramEmployeeNameSearcher();
+		ReflectionTestUtils.setField(searcher, "employeeRepository", employeeRepository);
+		searcher.rebuild();
+	}
+
+	@Test
+	public void testSearch() {
+		assertThat("部分一致で検索されていません", ids(searcher.search("田", 10, 0)), is(Arrays.asList(4, 2, 1, 5)));
+		assertThat("2文字以上の部分一致で検索されていません", ids(searcher.search("太郎", 10, 0)), is(Arrays.asList(4, 1)));
+		assertThat("バイグラムが連続していない名前が検索されています", ids(searcher.search("山田太", 10, 0)), is(Arrays.asList(1)));
+		Page<EmployeeSummary> page = searcher.search("田", 2, 2);
+		assertThat("オフセットが反映されていません", ids(page), is(Arrays.asList(1, 5)));
+		assertThat("ヒット件数が正しくありません", page.getTotalCount(), is(4));
+	}
+
+	@Test
+	public void testSearchWithoutHit() {
+		Page<EmployeeSummary> page = searcher.search("佐藤", 10, 0);
+		assertThat("ヒットしない名前で結果が返されています", page.getTotalCount(), is(0));
+		verify(employeeRepository, never()).searchPageByName("佐藤", 10, 0);
+	}
+
+	@Test
+	public void testSearchWithCursor() {
+		EmployeeCursor cursor = EmployeeCursor.of(employee(2, "山田花子", 2013, 0));
+		assertThat("カーソルより後ろの結果が取得されていません", ids(searcher.searchAfter("田", cursor, 10)), is(Arrays.asList(1, 5)));
+		assertThat("カーソルより前の結果が取得されていません", ids(searcher.searchBefore("田", cursor, 10)), is(Arrays.asList(4)));
+		assertThat("ヒット件数が正しくありません", searcher.searchAfter("田", cursor, 10).getTotalCount(), is(4));
+	}
+
+	@Test
+	public void testAdd() {
+		Employee employee = employee(6, "山田三郎", 2020, 0);
+		employeeList.add(employee);
+		searcher.add(employee);
+		searcher.add(employee);
+		assertThat("追加した従業員が検索されていません", searcher.search("山田", 10, 0).getTotalCount(), is(3));
+	}
+
+	@Test
+	public void testSearchWithCursorSameDay() {
+		// 同じ日の異なる時刻(ミリ秒未満の差を含む)に入社した従業員. IDの順と時刻の順を逆にする
+		Employee later = employee(6, "山田三郎", Timestamp.valueOf("2013-01-01 09:00:00.000002"));
+		Employee earlier = employee(7, "山田四郎", Timestamp.valueOf("2013-01-01 09:00:00.000001"));
+		employeeList.add(later);
+		employeeList.add(earlier);
+		searcher.add(later);
+		searcher.add(earlier);
+
+		List<Integer> forward = new ArrayList<>();
+		Page<EmployeeSummary> page = searcher.search("山田", 1, 0);
+		while (!page.getContent().isEmpty()) {
+			forward.addAll(ids(page));
+			page = searcher.searchAfter("山田", roundTrip(page.getContent().get(0)), 1);
+		}
+		assertThat("同じ日の従業員が飛ばされたか重複しています", forward, is(Arrays.asList(6, 7, 2, 1)));
+
+		List<Integer> backward = new ArrayList<>();
+		EmployeeCursor cursor = roundTrip(new EmployeeSummary(1, "山田太郎", employeeList.get(0).getHireDate(), 0));
+		page = searcher.searchBefore("山田", cursor, 1);
+		while (!page.getContent().isEmpty()) {
+			backward.addAll(0, ids(page));
+			page = searcher.searchBefore("山田", roundTrip(page.getContent().get(0)), 1);
+		}
+		assertThat("前のページで同じ日の従業員が飛ばされたか重複しています", backward, is(Arrays.asList(6, 7, 2)));
+	}
+
+	@Test
+	public void testRebuild() {
+		Employee employee = employee(6, "山田三郎", 2020, 0);
+		employeeList.add(employee);
+		when(employeeRepository.findAllSearchKeys()).thenReturn(new ArrayList<>(employeeList));
+		searcher.rebuild();
+		assertThat("データベースに直接登録された従業員が作り直した索引に含まれていません",
+				ids(searcher.search("山田", 10, 0)), is(Arrays.asList(6, 2, 1)));
+	}
+
+	@SuppressWarnings("deprecation")
+	private static Employee employee(int id, String name, int year, int month) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName(name);
+		employee.setHireDate(new Date(year - 1900, month, 1));
+		return employee;
+	}
+
+	private static Employee employee(int id, String name, Timestamp hireDate) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName(name);
+		employee.setHireDate(hireDate);
+		return employee;
+	}
+
+	private static EmployeeCursor roundTrip(EmployeeSummary employee) {
+		return EmployeeCursor.decode(EmployeeCursor.of(employee).encode());
+	}
+
+	private static List<Integer> ids(Page<EmployeeSummary> page) {
+		return page.getContent().stream().map(EmployeeSummary::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,75 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordHashingExecutorTest {
+	private SimpleMeterRegistry meterRegistry;
+	private PasswordHashingExecutor executor;
+	private CountDownLatch release;
+
+	@Before
+	public void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		executor = new PasswordHashingExecutor(1, 1, 5000, meterRegistry);
+		release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testExecute() {
+		assertThat("結果が返っていません", executor.execute(() -> "hashed"), is("hashed"));
+		assertThat("処理時間が記録されていません",
+				meterRegistry.get("password.hashing.duration").timer().count(), is(1L));
+		assertThat("待ち時間が記録されていません",
+				meterRegistry.get("password.hashing.queue.wait").timer().count(), is(1L));
+	}
+
+	@Test
+	public void testRejectWhenSaturated() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		// 1つ目がスレッドを占有し、2つ目が待ち行列を埋める
+		for (int i = 0; i < 2; i++) {
+			Thread thread = new Thread(() -> executor.execute(() -> {
+				started.countDown();
+				try {
+					return release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}));
+			thread.setDaemon(true);
+			thread.start();
+			started.await(5, TimeUnit.SECONDS);
+		}
+		long deadline = System.currentTimeMillis() + 5000;
+		while (meterRegistry.get("password.hashing.queue").gauge().value() < 1
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		try {
+			executor.execute(() -> "hashed");
+			fail("待ち行列が一杯でも受け付けています");
+		} catch (RejectedExecutionException e) {
+			assertThat("拒否した数が記録されていません",
+					meterRegistry.get("password.hashing.rejections").counter().count(), is(1.0));
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ThumbnailServiceTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private ImageStore imageStore;
+
+	private ThumbnailService thumbnailService;
+
+	@Before
+	public void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		imageStore = new ImageStore(temporaryFolder.getRoot().toPath());
+		thumbnailService = new ThumbnailService(100, 1, 10, 100_000, meterRegistry);
+		ReflectionTestUtils.setField(thumbnailService, "imageStore", imageStore);
+	}
+
+	@After
+	public void tearDown() {
+		thumbnailService.shutdown();
+	}
+
+	@Test
+	public void testRequest() throws Exception {
+		String key = imageStore.save(new ByteArrayInputStream(png(400, 200)), "png");
+		thumbnailService.request(key);
+
+		for (int i = 0; i < 100 && meterRegistry.get("employee.image.thumbnail.generation").timer().count() == 0; i++) {
+			Thread.sleep(50);
+		}
+		Path thumbnail = imageStore.resolveThumbnail(key);
+		assertThat("縮小版が作成されていません", Files.exists(thumbnail), is(true));
+		BufferedImage image = ImageIO.read(thumbnail.toFile());
+		assertThat("長辺が縮小版のサイズになっていません", image.getWidth(), is(100));
+		assertThat("縦横比が保たれていません", image.getHeight(), is(50));
+		assertThat("作成時間が記録されていません",
+				meterRegistry.get("employee.image.thumbnail.generation").timer().count(), is(1L));
+	}
+
+	@Test
+	public void testRequestTooLarge() throws Exception {
+		String key = imageStore.save(new ByteArrayInputStream(png(400, 300)), "png");
+		thumbnailService.request(key);
+
+		for (int i = 0; i < 100 && meterRegistry.get("employee.image.thumbnail.generation").timer().count() == 0; i++) {
+			Thread.sleep(50);
+		}
+		assertThat("ピクセル数が上限を超える画像の縮小版が作成されています",
+				Files.exists(imageStore.resolveThumbnail(key)), is(false));
+		assertThat("失敗が記録されていません",
+				meterRegistry.get("employee.image.thumbnail.failures").counter().count(), is(1.0));
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,50 @@
+package jp.co.sample.emp_management.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipCodeIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ZipCodeIndex zipCodeIndex;
+
+	@Before
+	public void setUp() throws IOException {
+		String csv = "13101,\"100  \",\"1000000\",\"ﾄｳｷｮｳﾄ\",\"ﾁﾖﾀﾞｸ\",\"ｲｶﾆｹｲｻｲｶﾞﾅｲﾊﾞｱｲ\",\"東京都\",\"千代田区\",\"以下に掲載がない場合\",0,0,0,0,0,0\r\n"
+				+ "13101,\"102  \",\"1020082\",\"ﾄｳｷｮｳﾄ\",\"ﾁﾖﾀﾞｸ\",\"ｲﾁﾊﾞﾝﾁｮｳ\",\"東京都\",\"千代田区\",\"一番町\",0,0,0,0,0,0\r\n"
+				+ "01101,\"060  \",\"0600042\",\"ﾎｯｶｲﾄﾞｳ\",\"ｻｯﾎﾟﾛｼﾁｭｳｵｳｸ\",\"ｵｵﾄﾞｵﾘﾆｼ(1-19ﾁｮｳﾒ)\",\"北海道\",\"札幌市中央区\",\"大通西（１～１９丁目、\",1,0,1,0,0,0\r\n"
+				+ "01101,\"060  \",\"0600042\",\"ﾎｯｶｲﾄﾞｳ\",\"ｻｯﾎﾟﾛｼﾁｭｳｵｳｸ\",\"ｵｵﾄﾞｵﾘﾆｼ(1-19ﾁｮｳﾒ)\",\"北海道\",\"札幌市中央区\",\"２０丁目）\",1,0,1,0,0,0\r\n"
+				+ "01101,\"060  \",\"0600042\",\"ﾎｯｶｲﾄﾞｳ\",\"ｻｯﾎﾟﾛｼﾁｭｳｵｳｸ\",\"ｵｵﾄﾞｵﾘﾆｼ\",\"北海道\",\"札幌市中央区\",\"大通西\",1,0,1,0,0,0\r\n";
+		Path path = temporaryFolder.newFile("KEN_ALL.CSV").toPath();
+		Files.write(path, csv.getBytes(Charset.forName("MS932")));
+		zipCodeIndex = new ZipCodeIndex(path);
+		zipCodeIndex.reload();
+	}
+
+	@Test
+	public void testFind() {
+		assertThat("住所が検索されていません", zipCodeIndex.find("1020082"), is(Arrays.asList("東京都千代田区一番町")));
+		assertThat("ハイフン付きの郵便番号で検索されていません", zipCodeIndex.find("102-0082"),
+				is(Arrays.asList("東京都千代田区一番町")));
+		assertThat("「以下に掲載がない場合」が除かれていません", zipCodeIndex.find("1000000"), is(Arrays.asList("東京都千代田区")));
+		assertThat("複数行に分かれた町域名が1つにまとめられていません", zipCodeIndex.find("0600042"),
+				is(Arrays.asList("北海道札幌市中央区大通西")));
+		assertThat("該当しない郵便番号で住所が返されています", zipCodeIndex.find("9999999"), is(Collections.<String>emptyList()));
+		assertThat("不正な郵便番号で住所が返されています", zipCodeIndex.find("abc"), is(Collections.<String>emptyList()));
+		assertThat("郵便番号の数が正しくありません", zipCodeIndex.size(), is(3));
+	}
+}